@@ -0,0 +1,82 @@
+package com.stevehead.ksp.rocketbuilder.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.stevehead.ksp.rocketbuilder.App;
+import com.stevehead.ksp.rocketbuilder.rocket.Engine;
+import com.stevehead.ksp.rocketbuilder.rocket.Rocket;
+import com.stevehead.ksp.rocketbuilder.search.PayloadSearch;
+import com.stevehead.ksp.rocketbuilder.search.SearchStrategy;
+
+/**
+ * BuilderBenchmark times a full App.Builder search for one, two and three
+ * stage rockets, with every search strategy and payload search.
+ *
+ * @author Steve Johnson
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BuilderBenchmark {
+	@Param({"1", "2", "3"})
+	private int stages;
+
+	@Param({"EXHAUSTIVE", "BRANCH_AND_BOUND", "ANALYTIC", "MULTI_RESOLUTION", "LINE_SEARCH"})
+	private SearchStrategy strategy;
+
+	@Param({"LINEAR", "BISECTION"})
+	private PayloadSearch payloadSearch;
+
+	@Param({"0.81"})
+	private double ispScaler;
+
+	private App.Builder builder;
+
+	@Setup
+	public void setUp() {
+		switch (stages) {
+		case 1:
+			builder = new App.Builder(1500, Engine.PreDefined.LV_T30_LIQUID_FUEL_ENGINE.toEngine())
+					.setFirstStageStackSize(2);
+			break;
+		case 2:
+			builder = new App.Builder(3800,
+					Engine.PreDefined.LV_T30_LIQUID_FUEL_ENGINE.toEngine(),
+					Engine.PreDefined.LV_909_LIQUID_FUEL_ENGINE.toEngine());
+			break;
+		case 3:
+			builder = new App.Builder(4500,
+					Engine.PreDefined.ROCKOMAX_SKIPPER_LIQUID_ENGINE.toEngine(),
+					Engine.PreDefined.ROCKOMAX_POODLE_LIQUID_ENGINE.toEngine(),
+					Engine.PreDefined.LV_909_LIQUID_FUEL_ENGINE.toEngine())
+					.setMassIncrements(200);
+			break;
+		default:
+			throw new IllegalArgumentException("Only 1 to 3 stages are benchmarked.");
+		}
+		builder.setIspScaler(ispScaler)
+				.setStrategy(strategy)
+				.setPayloadSearch(payloadSearch)
+				.setLogOutput(false);
+	}
+
+	@Benchmark
+	public Rocket run() {
+		return builder.run();
+	}
+}
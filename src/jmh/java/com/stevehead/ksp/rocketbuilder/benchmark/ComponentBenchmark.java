@@ -0,0 +1,73 @@
+package com.stevehead.ksp.rocketbuilder.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.stevehead.ksp.rocketbuilder.rocket.Engine;
+import com.stevehead.ksp.rocketbuilder.rocket.Payload;
+import com.stevehead.ksp.rocketbuilder.rocket.ProceduralTank;
+import com.stevehead.ksp.rocketbuilder.rocket.Stack;
+import com.stevehead.ksp.rocketbuilder.rocket.Stage;
+
+/**
+ * ComponentBenchmark times the construction of the rocket components the
+ * search used to create for every candidate.
+ *
+ * @author Steve Johnson
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ComponentBenchmark {
+	private Engine engine;
+	private Payload payload;
+	private ProceduralTank tank;
+	private Stack stack;
+	private double tankMass = 4000;
+
+	@Setup
+	public void setUp() {
+		engine = Engine.PreDefined.LV_T30_LIQUID_FUEL_ENGINE.toEngine();
+		payload = new Payload(1500);
+		tank = new ProceduralTank(tankMass, engine.getPropellants());
+		stack = new Stack(tank, engine);
+	}
+
+	@Benchmark
+	public ProceduralTank proceduralTank() {
+		return new ProceduralTank(tankMass, engine.getPropellants());
+	}
+
+	@Benchmark
+	public Stack stack() {
+		return new Stack(tank, engine);
+	}
+
+	@Benchmark
+	public Stack stackWithTank() {
+		return new Stack(new ProceduralTank(tankMass, engine.getPropellants()), engine);
+	}
+
+	@Benchmark
+	public Stage stage() {
+		return new Stage(payload, stack, 1);
+	}
+
+	@Benchmark
+	public Stage stageOfThreeStacks() {
+		return new Stage(payload, stack, 3);
+	}
+}
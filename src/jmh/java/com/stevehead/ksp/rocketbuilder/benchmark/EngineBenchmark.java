@@ -0,0 +1,79 @@
+package com.stevehead.ksp.rocketbuilder.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.stevehead.ksp.rocketbuilder.game.Mod;
+import com.stevehead.ksp.rocketbuilder.rocket.Engine;
+import com.stevehead.ksp.rocketbuilder.rocket.EngineCatalog;
+
+/**
+ * EngineBenchmark times TweakScale and the engine catalog lookups.
+ *
+ * @author Steve Johnson
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineBenchmark {
+	private Engine engine;
+
+	@Setup
+	public void setUp() {
+		engine = Engine.PreDefined.LV_T30_LIQUID_FUEL_ENGINE.toEngine();
+	}
+
+	@Benchmark
+	public Engine tweakScale() {
+		return engine.tweakScale(2.5);
+	}
+
+	@Benchmark
+	public Engine tweakScaleSameSize() {
+		return engine.tweakScale(1.25);
+	}
+
+	@Benchmark
+	public Engine[] getEnginesBySize() {
+		return Engine.getEngines(1.25);
+	}
+
+	@Benchmark
+	public Engine[] getEnginesBySizes() {
+		return Engine.getEngines(1.25, 2.5);
+	}
+
+	@Benchmark
+	public Engine[] getEnginesByMod() {
+		return Engine.getEngines(Mod.STOCK);
+	}
+
+	@Benchmark
+	public List<Engine> catalogBySize() {
+		return EngineCatalog.getPreDefined().getEngines(1.25);
+	}
+
+	@Benchmark
+	public List<Engine> catalogBySizeAndMod() {
+		return EngineCatalog.getPreDefined().getEngines(2.5, Mod.NOVAPUNCH);
+	}
+
+	@Benchmark
+	public List<Engine> catalogByThrust() {
+		return EngineCatalog.getPreDefined().getEnginesByThrust(200000, 1500000);
+	}
+}
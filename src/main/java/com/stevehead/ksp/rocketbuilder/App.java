@@ -1,12 +1,29 @@
 package com.stevehead.ksp.rocketbuilder;
 
+import java.util.List;
+
 import com.stevehead.ksp.rocketbuilder.interfaces.*;
 import com.stevehead.ksp.rocketbuilder.rocket.*;
+import com.stevehead.ksp.rocketbuilder.search.AsyncSearchListener;
+import com.stevehead.ksp.rocketbuilder.search.EngineSweep;
+import com.stevehead.ksp.rocketbuilder.search.PayloadSearch;
+import com.stevehead.ksp.rocketbuilder.search.PrintStreamListener;
+import com.stevehead.ksp.rocketbuilder.search.SearchListener;
+import com.stevehead.ksp.rocketbuilder.search.SearchResult;
+import com.stevehead.ksp.rocketbuilder.search.SearchStrategy;
+import com.stevehead.ksp.rocketbuilder.search.StagedSearch;
+import com.stevehead.ksp.rocketbuilder.search.UpperStageCandidates;
 
 public class App 
 {
 	private static boolean logOutput = true;
 	
+	/**
+	 * The log output of every search, shared so a run starts a single
+	 * thread for it.
+	 */
+	private static AsyncSearchListener logListener;
+	
 	public static void main(String[] args)
 	{
 		double targetDeltaV = 3800;
@@ -15,6 +32,7 @@ public class App
 		double engineSize = 1.25;
 		double tweakScale = 1.25;
 		int firstStageStacks = 1;
+		boolean parallelSweep = true;
 		
 		double massIncrements;
 		
@@ -25,27 +43,41 @@ public class App
 		
 		Engine[] engines = Engine.getEngines(engineSize);
 		
-		for (Engine firstStageEngine : engines) {
-			for (Engine secondStageEngine : engines) {
-				
-				if (secondStageEngine.getIsp() <= firstStageEngine.getIsp()) continue;
-				
-				System.out.println("*********************************");
-				
-				if (firstStageStacks > 1)
-					System.out.println("First stage: " + firstStageEngine + " x" + firstStageStacks);
-				else
-					System.out.println("First stage: " + firstStageEngine);
-				System.out.println("Second stage: " + secondStageEngine);
-				System.out.println("*********************************");
-				Builder builder = new Builder(targetDeltaV, firstStageEngine.tweakScale(tweakScale), secondStageEngine.tweakScale(tweakScale));
-				builder.setIspScaler(ispScale);
-				builder.setMassIncrements(massIncrements);
-				builder.setFirstStageStackSize(firstStageStacks);
-				builder.run();
-				System.out.println("*********************************\n\n\n\n\n");
-			}
+		EngineSweep sweep = new EngineSweep(targetDeltaV, engines);
+		sweep.setTweakScale(tweakScale);
+		sweep.setIspScaler(ispScale);
+		sweep.setMassIncrements(massIncrements);
+		sweep.setFirstStageStackSize(firstStageStacks);
+		sweep.setPruneDominated(true);
+		
+		List<EngineSweep.Result> results = parallelSweep ? sweep.runParallel() : sweep.run();
+		
+		// The report is put together first and printed in one go.
+		StringBuilder report = new StringBuilder();
+		report.append(sweep.getPruning()).append('\n');
+		for (EngineSweep.Result result : results) {
+			report.append("*********************************\n");
+			
+			report.append("First stage: ").append(result.getFirstStageEngine());
+			if (firstStageStacks > 1)
+				report.append(" x").append(firstStageStacks);
+			report.append("\nSecond stage: ").append(result.getSecondStageEngine()).append('\n');
+			report.append("*********************************\n");
+			
+			Rocket rocket = result.getRocket();
+			if (rocket != null)
+				report.append(result.getPayloadMass()).append(", ").append(rocket.getTotalMass()).append(": ")
+						.append(rocket.getTotalDeltaV()).append(", ").append(rocket.getStartingTWR()).append(", ")
+						.append(result.getPayloadFraction()).append("%\n");
+			report.append("*********************************\n\n\n\n\n\n");
 		}
+		System.out.print(report);
+	}
+	
+	private static synchronized AsyncSearchListener getLogListener() {
+		if (logListener == null)
+			logListener = new AsyncSearchListener(new PrintStreamListener(System.out));
+		return logListener;
 	}
 	
 	public static class Builder {
@@ -60,13 +92,20 @@ public class App
 		private double massIncrements = DEFAULT_MASS_INCREMENTS;
 		private double ispScaler = Engine.getIspScaler();
 		private int firstStageStackSize = 1;
-
+		private SearchStrategy strategy = SearchStrategy.EXHAUSTIVE;
+		private PayloadSearch payloadSearch = PayloadSearch.LINEAR;
+		private int topDesigns = 1;
+		private int resolutionLevels = StagedSearch.DEFAULT_RESOLUTION_LEVELS;
+		private int refinedDesigns = StagedSearch.DEFAULT_REFINED_DESIGNS;
+		private double[] paretoEpsilons;
+		private UpperStageCandidates upperStageCandidates;
+		private boolean stageTiming;
+		private boolean logOutput = App.logOutput;
+		private SearchListener listener;
 		
 		public Builder(double targetDeltaV, Thrustable... engines) {
 			if (engines.length == 0) {
 				throw new IllegalArgumentException("One engine is required at least.");
-			} else if (engines.length > 3) {
-				throw new IllegalArgumentException("Only up to three stages is supported currently.");
 			}
 			this.targetDeltaV = targetDeltaV;
 			this.engines = engines;
@@ -89,181 +128,167 @@ public class App
 			return this;
 		}
 		
+		public Builder setStrategy(SearchStrategy strategy) {
+			this.strategy = strategy;
+			return this;
+		}
+		
+		public Builder setPayloadSearch(PayloadSearch payloadSearch) {
+			this.payloadSearch = payloadSearch;
+			return this;
+		}
+		
+		/**
+		 * Sets the number of designs kept, the best first, for search() to
+		 * return.
+		 * 
+		 * @param topDesigns	the number of designs kept
+		 * @return				the builder
+		 */
+		public Builder setTopDesigns(int topDesigns) {
+			this.topDesigns = topDesigns;
+			return this;
+		}
+		
+		/**
+		 * Sets how the multi-resolution strategy refines.
+		 * 
+		 * @param resolutionLevels		the number of times the grid step is halved
+		 * @param refinedDesigns		the number of designs refined at each level
+		 * @return						the builder
+		 */
+		public Builder setMultiResolution(int resolutionLevels, int refinedDesigns) {
+			this.resolutionLevels = resolutionLevels;
+			this.refinedDesigns = refinedDesigns;
+			return this;
+		}
+		
+		/**
+		 * Keeps the Pareto front of payload fraction, delta-V and starting
+		 * TWR for search() to return.
+		 * 
+		 * @param payloadFractionEpsilon	the box size of the payload fraction in percent
+		 * @param deltaVEpsilon				the box size of the delta-V in m/s
+		 * @param twrEpsilon				the box size of the starting TWR
+		 * @return							the builder
+		 */
+		public Builder setParetoFront(double payloadFractionEpsilon, double deltaVEpsilon, double twrEpsilon) {
+			this.paretoEpsilons = new double[] {payloadFractionEpsilon, deltaVEpsilon, twrEpsilon};
+			return this;
+		}
+		
+		/**
+		 * Shares the top stage candidates with other searches of the same top
+		 * stage engine.
+		 * 
+		 * @param upperStageCandidates	the candidates, or null to walk them
+		 * @return						the builder
+		 */
+		public Builder setUpperStageCandidates(UpperStageCandidates upperStageCandidates) {
+			this.upperStageCandidates = upperStageCandidates;
+			return this;
+		}
+		
+		/**
+		 * Sets whether the time spent walking each stage is measured for the
+		 * statistics of search().
+		 * 
+		 * @param stageTiming	whether each stage is timed
+		 * @return				the builder
+		 */
+		public Builder setStageTiming(boolean stageTiming) {
+			this.stageTiming = stageTiming;
+			return this;
+		}
+		
+		public Builder setLogOutput(boolean logOutput) {
+			this.logOutput = logOutput;
+			return this;
+		}
+		
+		/**
+		 * Sets the listener told about every improvement. It replaces the log
+		 * output.
+		 * 
+		 * @param listener		the listener, or null for the log output
+		 * @return				the builder
+		 */
+		public Builder setListener(SearchListener listener) {
+			this.listener = listener;
+			return this;
+		}
+		
 		public Rocket run() {
-			Rocket rocket = null;
-			double originalIspScaler = Engine.getIspScaler();
-			Engine.setIspScaler(ispScaler);
-			
-			switch (engines.length) {
-			case 1:
-				rocket = runOneStage();
-				break;
-			case 2:
-				rocket = runTwoStage();
-				break;
-			case 3:
-				rocket = runThreeStage();
-				break;
-			}
-			
-			Engine.setIspScaler(originalIspScaler);
-			return rocket;
+			return search().getRocket();
 		}
 		
-		private Rocket runOneStage() {
-			Rocket bestRocket = null;
-			boolean foundBest = false;
-			
-			double payloadMass = maxPayloadMass;
-			while (payloadMass > 0) {
-				double bestPayloadFraction = 0;
-				double stage1tankMass = massIncrements;
-				while (true) {
-					ProceduralTank tank1 = new ProceduralTank(stage1tankMass, engines[0].getPropellants());
-					Stack stack1 = new Stack(tank1, engines[0]);
-					Stage stage1 = new Stage(new Payload(payloadMass), stack1, firstStageStackSize);
-					
-					if (stage1.getMinTWR() < TARGET_STAGE_1_TWR) break;
-					
-					Rocket.Builder rocketBuilder = new Rocket.Builder(stage1tankMass);
-					rocketBuilder.addStage(stage1);
-					Rocket rocket = rocketBuilder.build();
-					
-					if (rocket.getStartingTWR() < TARGET_STAGE_1_TWR) break;
-					
-					if (rocket.getTotalDeltaV() > targetDeltaV) {
-						double payloadFraction = 100.0 * payloadMass / (rocket.getTotalMass());
-						if (payloadFraction > bestPayloadFraction) {
-							if (logOutput)
-								System.out.println(payloadMass + ", " + stage1tankMass + ": " + rocket.getTotalDeltaV() + ", " + payloadFraction + "%");
-							bestRocket = rocket;
-							bestPayloadFraction = payloadFraction;
-							foundBest = true;
-						}
-					}
-					
-					stage1tankMass += massIncrements;
-				}
-				if (foundBest) break;
-				payloadMass -= massIncrements;
+		/**
+		 * Runs the search and returns the best rocket along with the
+		 * statistics of the search.
+		 * 
+		 * @return		the best rocket and the statistics
+		 */
+		public SearchResult search() {
+			StagedSearch search = createSearch();
+			if (listener != null || !logOutput) {
+				return search.setListener(listener != null ? listener : SearchListener.NONE).search(maxPayloadMass);
 			}
 			
-			return bestRocket;
+			// The log is printed on the listener's own thread, and all of it
+			// before the search returns.
+			AsyncSearchListener output = getLogListener();
+			try {
+				return search.setListener(output).search(maxPayloadMass);
+			} finally {
+				output.flush();
+			}
 		}
 		
-		private Rocket runTwoStage() {
-			Rocket bestRocket = null;
-			boolean foundBest = false;
-			
-			double payloadMass = maxPayloadMass;
-			while (payloadMass > 0) {
-				double bestPayloadFraction = 0;
-				double stage2tankMass = massIncrements;
-				while (true) {
-					ProceduralTank tank2 = new ProceduralTank(stage2tankMass, engines[1].getPropellants());
-					Stack stack2 = new Stack(tank2, engines[1]);
-					Stage stage2 = new Stage(new Payload(payloadMass), stack2);
-					
-					if (stage2.getMinTWR() < TARGET_STAGE_2_TWR) break;
-					
-					double stage1tankMass = stage2tankMass + massIncrements;
-					while (true) {
-						ProceduralTank tank1 = new ProceduralTank(stage1tankMass, engines[0].getPropellants());
-						Stack stack1 = new Stack(tank1, engines[0]);
-						Stage stage1 = new Stage(stage2, stack1, firstStageStackSize);
-						
-						if (stage1.getMinTWR() < TARGET_STAGE_1_TWR) break;
-						
-						double tankSizeRatio = tank2.getMass() / (tank1.getMass() / firstStageStackSize);
-						
-						if (tankSizeRatio > 0.3 && tankSizeRatio < 1) {
-							Rocket.Builder rocketBuilder = new Rocket.Builder();
-							rocketBuilder.addStage(stage2);
-							rocketBuilder.addStage(stage1);
-							Rocket rocket = rocketBuilder.build();
-							
-							if (rocket.getTotalDeltaV() > targetDeltaV) {
-								double payloadFraction = 100.0 * payloadMass / (rocket.getTotalMass());
-								if (payloadFraction > bestPayloadFraction) {
-									if (logOutput)
-										System.out.println(payloadMass + ", " + stage1tankMass + ", " + stage2tankMass + ": " + rocket.getTotalDeltaV() + ", " + payloadFraction + "%");
-									bestRocket = rocket;
-									bestPayloadFraction = payloadFraction;
-									foundBest = true;
-								}
-							}
-						}
-						
-						stage1tankMass += massIncrements;
-					}
-					stage2tankMass += massIncrements;
-				}
-				if (foundBest) break;
-				payloadMass -= massIncrements;
+		/**
+		 * Returns an upper bound on the payload fraction of any rocket the
+		 * search can find, without searching.
+		 * 
+		 * @return		the bound in percent, or 0 if no rocket can reach the
+		 * 				target delta-V
+		 */
+		public double getPayloadFractionBound() {
+			return createSearch().getPayloadFractionBound(maxPayloadMass);
+		}
+		
+		private StagedSearch createSearch() {
+			double[] targetTWRs = new double[engines.length];
+			for (int i = 0; i < engines.length; i++) {
+				targetTWRs[i] = getTargetTWR(i);
 			}
-			
-			return bestRocket;
+			StagedSearch search = new StagedSearch(new IspContext(ispScaler), targetDeltaV, massIncrements, targetTWRs, firstStageStackSize, engines);
+			search.setStrategy(strategy);
+			search.setPayloadSearch(payloadSearch);
+			search.setTopDesigns(topDesigns);
+			search.setMultiResolution(resolutionLevels, refinedDesigns);
+			search.setUpperStageCandidates(upperStageCandidates);
+			search.setStageTiming(stageTiming);
+			if (paretoEpsilons != null) {
+				search.setParetoFront(paretoEpsilons[0], paretoEpsilons[1], paretoEpsilons[2]);
+			}
+			return search;
 		}
 		
-		private Rocket runThreeStage() {
-			Rocket bestRocket = null;
-			boolean foundBest = false;
-			
-			double payloadMass = maxPayloadMass;
-			while (payloadMass > 0) {
-				double bestPayloadFraction = 0;
-				double stage3tankMass = massIncrements;
-				
-				while (true) {
-					ProceduralTank tank3 = new ProceduralTank(stage3tankMass, engines[2].getPropellants());
-					Stack stack3 = new Stack(tank3, engines[2]);
-					Stage stage3 = new Stage(new Payload(payloadMass), stack3);
-					
-					if (stage3.getMinTWR() < TARGET_STAGE_3_TWR) break;
-				
-					double stage2tankMass = stage3tankMass + massIncrements;
-					while (true) {
-						ProceduralTank tank2 = new ProceduralTank(stage2tankMass, engines[1].getPropellants());
-						Stack stack2 = new Stack(tank2, engines[1]);
-						Stage stage2 = new Stage(stage3, stack2);
-						
-						if (stage2.getMinTWR() < TARGET_STAGE_2_TWR) break;
-						if (stage2.getMinTWR() < stage3.getMinTWR()) break;
-						
-						double stage1tankMass = stage2tankMass + massIncrements;
-						while (true) {
-							ProceduralTank tank1 = new ProceduralTank(stage1tankMass, engines[0].getPropellants());
-							Stack stack1 = new Stack(tank1, engines[0]);
-							Stage stage1 = new Stage(stage2, stack1, firstStageStackSize);
-							
-							if (stage1.getMinTWR() < TARGET_STAGE_1_TWR) break;
-							
-							Rocket.Builder rocketBuilder = new Rocket.Builder();
-							rocketBuilder.addStage(stage2);
-							rocketBuilder.addStage(stage1);
-							Rocket rocket = rocketBuilder.build();
-							
-							if (rocket.getTotalDeltaV() > targetDeltaV) {
-								double payloadFraction = 100.0 * payloadMass / (rocket.getTotalMass());
-								if (payloadFraction > bestPayloadFraction) {
-									if (logOutput)
-										System.out.println(payloadMass + ", " + stage1tankMass + ", " + stage2tankMass + ", " + stage3tankMass + ": " + rocket.getTotalDeltaV() + ", " + payloadFraction + "%");
-									bestRocket = rocket;
-									bestPayloadFraction = payloadFraction;
-									foundBest = true;
-								}
-							}
-							stage1tankMass += massIncrements;
-						}
-						stage2tankMass += massIncrements;
-					}
-					stage3tankMass += massIncrements;
-				}
-				if (foundBest) break;
-				payloadMass -= massIncrements;
+		/**
+		 * Returns the minimum starting TWR of a stage. Stages above the third
+		 * share the third stage's target.
+		 * 
+		 * @param stageIndex		the stage index, first stage is 0
+		 * @return					the minimum starting TWR
+		 */
+		private static double getTargetTWR(int stageIndex) {
+			switch (stageIndex) {
+			case 0:
+				return TARGET_STAGE_1_TWR;
+			case 1:
+				return TARGET_STAGE_2_TWR;
+			default:
+				return TARGET_STAGE_3_TWR;
 			}
-			
-			return bestRocket;
 		}
 	}
 }
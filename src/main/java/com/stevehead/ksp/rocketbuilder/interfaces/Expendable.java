@@ -38,6 +38,15 @@ public interface Expendable extends Massive {
 	 */
 	Propellant[] getPropellants();
 	
+	/**
+	 * The propellants required, as a Propellant mask.
+	 * 
+	 * @return		the propellant mask
+	 */
+	default int getPropellantMask() {
+		return Propellant.getMask(getPropellants());
+	}
+	
 	/**
 	 * The type of tank/engine.
 	 * 
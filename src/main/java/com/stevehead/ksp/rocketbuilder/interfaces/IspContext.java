@@ -0,0 +1,92 @@
+package com.stevehead.ksp.rocketbuilder.interfaces;
+
+/**
+ * IspContext is an immutable Isp scaler, such as the one set by the Kerbal
+ * Isp Difficulty Scaler (KIDS) mod. Thrusters keep their unscaled Isp and
+ * only apply a context when they are evaluated, so searches with different
+ * scalers can share the same engines.
+ *
+ * @author Steve Johnson
+ */
+public final class IspContext {
+	/**
+	 * The context that leaves the Isp as it is.
+	 */
+	public static final IspContext UNSCALED = new IspContext(1);
+
+	/**
+	 * The context used where none is given, such as the one of the Kerbal
+	 * Isp Difficulty Scaler (KIDS) mod when it's used in game.
+	 */
+	private static volatile IspContext defaultContext = UNSCALED;
+
+	/**
+	 * The scalar applied to the Isp.
+	 */
+	private final double ispScaler;
+
+	/**
+	 * @param ispScaler		the Isp scaler
+	 */
+	public IspContext(double ispScaler) {
+		if (!(ispScaler > 0)) {
+			throw new IllegalArgumentException("The Isp scaler must be positive.");
+		}
+		this.ispScaler = ispScaler;
+	}
+
+	/**
+	 * Returns the context used where none is given.
+	 *
+	 * @return		the context
+	 */
+	public static IspContext getDefault() {
+		return defaultContext;
+	}
+
+	/**
+	 * Sets the context used where none is given.
+	 *
+	 * @param context	the context
+	 */
+	public static void setDefault(IspContext context) {
+		if (context == null) {
+			throw new IllegalArgumentException("The default Isp context is required.");
+		}
+		defaultContext = context;
+	}
+
+	/**
+	 * Scales an unscaled Isp.
+	 *
+	 * @param isp		the unscaled Isp in seconds
+	 * @return			the scaled Isp in seconds
+	 */
+	public double scale(double isp) {
+		return ispScaler * isp;
+	}
+
+	/**
+	 * @return		the Isp scaler
+	 */
+	public double getIspScaler() {
+		return ispScaler;
+	}
+
+	@Override
+	public boolean equals(Object object) {
+		if (this == object) return true;
+		if (!(object instanceof IspContext)) return false;
+		return Double.compare(ispScaler, ((IspContext) object).ispScaler) == 0;
+	}
+
+	@Override
+	public int hashCode() {
+		return Double.hashCode(ispScaler);
+	}
+
+	@Override
+	public String toString() {
+		return "Isp x" + ispScaler;
+	}
+}
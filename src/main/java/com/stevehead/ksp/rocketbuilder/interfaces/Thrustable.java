@@ -14,19 +14,35 @@ public interface Thrustable extends Expendable {
 	public static final double KERBIN_GRAVITY = 9.80977664671;
 	
 	/**
-	 * The change in velocity that can occur.
+	 * The change in velocity that can occur, with the global Isp scaler.
 	 * 
 	 * @return		the delta-V in m/s
 	 */
 	double getDeltaV();
 	
 	/**
-	 * The specific impulse of the engine(s).
+	 * The change in velocity that can occur, with the given Isp scaler.
+	 * 
+	 * @param context	the Isp scaler
+	 * @return			the delta-V in m/s
+	 */
+	double getDeltaV(IspContext context);
+	
+	/**
+	 * The specific impulse of the engine(s), with the global Isp scaler.
 	 * 
 	 * @return		Isp in seconds
 	 */
 	double getIsp();
 	
+	/**
+	 * The specific impulse of the engine(s), with the given Isp scaler.
+	 * 
+	 * @param context	the Isp scaler
+	 * @return			Isp in seconds
+	 */
+	double getIsp(IspContext context);
+	
 	/**
 	 * The initial thrust to weight ratio.
 	 * 
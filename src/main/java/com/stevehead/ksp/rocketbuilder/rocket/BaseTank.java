@@ -1,8 +1,5 @@
 package com.stevehead.ksp.rocketbuilder.rocket;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import com.stevehead.ksp.rocketbuilder.interfaces.Expendable;
 
 /**
@@ -17,6 +14,34 @@ public abstract class BaseTank extends BaseComponent implements Expendable {
 	 */
 	protected static final Propellant[] DEFAULT_PROPELLANTS = {Propellant.LIQUID_FUEL, Propellant.OXIDIZER};
 	
+	/**
+	 * The number of distinct propellant masks.
+	 */
+	protected static final int PROPELLANT_MASKS = 1 << Propellant.values().length;
+	
+	/**
+	 * The propellants of each propellant mask, in declaration order.
+	 */
+	private static final Propellant[][] MASK_PROPELLANTS = new Propellant[PROPELLANT_MASKS][];
+	
+	/**
+	 * The tank type of each propellant mask.
+	 */
+	private static final Type[] MASK_TYPES = new Type[PROPELLANT_MASKS];
+	
+	static {
+		Propellant[] allPropellants = Propellant.values();
+		for (int mask = 0; mask < PROPELLANT_MASKS; mask++) {
+			Propellant[] propellants = new Propellant[Integer.bitCount(mask)];
+			int i = 0;
+			for (Propellant propellant : allPropellants) {
+				if ((mask & propellant.getMask()) != 0) propellants[i++] = propellant;
+			}
+			MASK_PROPELLANTS[mask] = propellants;
+			MASK_TYPES[mask] = determineTankType(mask);
+		}
+	}
+	
 	/**
 	 * The mass after all propellant is used.
 	 */
@@ -27,6 +52,11 @@ public abstract class BaseTank extends BaseComponent implements Expendable {
 	 */
 	protected final Propellant[] propellants;
 	
+	/**
+	 * The propellants used, as a Propellant mask.
+	 */
+	protected final int propellantMask;
+	
 	/**
 	 * Type of tank.
 	 */
@@ -41,7 +71,21 @@ public abstract class BaseTank extends BaseComponent implements Expendable {
 		super(mass);
 		this.dryMass = dryMass;
 		this.propellants = determinePropellants(propellants);
-		this.type = determineTankType(this.propellants);
+		this.propellantMask = Propellant.getMask(this.propellants);
+		this.type = MASK_TYPES[propellantMask];
+	}
+	
+	/**
+	 * @param dryMass			the dry mass in kg
+	 * @param mass				the total mass in kg
+	 * @param propellantMask	the propellants used, as a Propellant mask
+	 */
+	protected BaseTank(double dryMass, double mass, int propellantMask) {
+		super(mass);
+		this.dryMass = dryMass;
+		this.propellants = MASK_PROPELLANTS[propellantMask];
+		this.propellantMask = propellantMask;
+		this.type = MASK_TYPES[propellantMask];
 	}
 	
 	/**
@@ -83,29 +127,56 @@ public abstract class BaseTank extends BaseComponent implements Expendable {
 	/**
 	 * Returns the combined types of propellants used.
 	 * 
-	 * @param expendables		the objects to combine their dry mass
-	 * @return					the combined dry mass in kg
+	 * @param expendables		the objects to combine their propellants
+	 * @return					the combined propellants
 	 */
 	protected static Propellant[] combinePropellants(Expendable... expendables) {
-		List<Propellant> propellants = new ArrayList<Propellant>();
+		return MASK_PROPELLANTS[combinePropellantMasks(expendables)];
+	}
+	
+	/**
+	 * Returns the combined propellants used, as a Propellant mask.
+	 * 
+	 * @param expendables		the objects to combine their propellants
+	 * @return					the combined propellant mask
+	 */
+	protected static int combinePropellantMasks(Expendable... expendables) {
+		int mask = 0;
 		for (Expendable expendableObject : expendables) {
-			for (Propellant propellant : expendableObject.getPropellants()) {
-				if (!propellants.contains(propellant)) {
-					propellants.add(propellant);
-				}
-			}
+			mask |= expendableObject.getPropellantMask();
 		}
-		return propellants.toArray(new Propellant[propellants.size()]);
+		return mask;
 	}
 	
 	/**
 	 * Helper method that determines the tank type from the propellants used.
-	 * Full functionality may be added gradually.
 	 * 
 	 * @param propellants		the propellants used
 	 * @return					the type of tank
 	 */
 	protected static Type determineTankType(Propellant... propellants) {
+		return MASK_TYPES[Propellant.getMask(propellants)];
+	}
+	
+	/**
+	 * Returns the tank type of a propellant mask.
+	 * 
+	 * @param propellantMask	the propellants used, as a Propellant mask
+	 * @return					the type of tank
+	 */
+	protected static Type getTankType(int propellantMask) {
+		return MASK_TYPES[propellantMask];
+	}
+	
+	/**
+	 * Works out the tank type of a propellant mask, for the mask table.
+	 * Full functionality may be added gradually.
+	 * 
+	 * @param propellantMask	the propellants used, as a Propellant mask
+	 * @return					the type of tank
+	 */
+	private static Type determineTankType(int propellantMask) {
+		Propellant[] propellants = MASK_PROPELLANTS[propellantMask];
 		if (propellants.length == 0) return Type.NONE;
 		if (propellants.length == 1) {
 			switch (propellants[0]) {
@@ -156,6 +227,11 @@ public abstract class BaseTank extends BaseComponent implements Expendable {
 		return propellants;
 	}
 	
+	@Override
+	public int getPropellantMask() {
+		return propellantMask;
+	}
+	
 	@Override
 	public Type getType() {
 		return type;
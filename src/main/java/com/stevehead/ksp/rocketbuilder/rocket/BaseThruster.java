@@ -1,5 +1,6 @@
 package com.stevehead.ksp.rocketbuilder.rocket;
 
+import com.stevehead.ksp.rocketbuilder.interfaces.IspContext;
 import com.stevehead.ksp.rocketbuilder.interfaces.Thrustable;
 
 /**
@@ -15,7 +16,7 @@ public abstract class BaseThruster extends BaseTank implements Thrustable {
 	protected final double thrust;
 	
 	/**
-	 * The specific impulse in seconds.
+	 * The unscaled specific impulse in seconds.
 	 */
 	protected final double isp;
 	
@@ -33,7 +34,7 @@ public abstract class BaseThruster extends BaseTank implements Thrustable {
 	 * @param dryMass		the dry mass in kg
 	 * @param mass			the total mass in kg
 	 * @param thrust		the thrust in N
-	 * @param isp			the specific impulse in seconds
+	 * @param isp			the unscaled specific impulse in seconds
 	 * @param propellants	the propellants used
 	 */
 	protected BaseThruster(double dryMass, double mass, double thrust, double isp, Propellant... propellants) {
@@ -44,10 +45,25 @@ public abstract class BaseThruster extends BaseTank implements Thrustable {
 		this.maxTWR = calculateTWR(getDryMass(), getThrust());
 	}
 	
+	/**
+	 * @param dryMass			the dry mass in kg
+	 * @param mass				the total mass in kg
+	 * @param thrust			the thrust in N
+	 * @param isp				the unscaled specific impulse in seconds
+	 * @param propellantMask	the propellants used, as a Propellant mask
+	 */
+	protected BaseThruster(double dryMass, double mass, double thrust, double isp, int propellantMask) {
+		super(dryMass, mass, propellantMask);
+		this.thrust = thrust;
+		this.isp = isp;
+		this.minTWR = calculateTWR(getMass(), getThrust());
+		this.maxTWR = calculateTWR(getDryMass(), getThrust());
+	}
+	
 	/**
 	 * @param mass			the mass in kg
 	 * @param thrust		the thrust in N
-	 * @param isp			the specific impulse in seconds
+	 * @param isp			the unscaled specific impulse in seconds
 	 * @param propellants	the propellants used
 	 */
 	protected BaseThruster(double mass, double thrust, double isp, Propellant... propellants) {
@@ -69,7 +85,9 @@ public abstract class BaseThruster extends BaseTank implements Thrustable {
 	}
 	
 	/**
-	 * Calculates the combined specific impulse of the engines.
+	 * Calculates the combined unscaled specific impulse of the engines. The
+	 * Isp scaler applies to every engine alike, so it can be applied to the
+	 * combined Isp afterwards.
 	 * 
 	 * @param engines		engines to be combined
 	 * @return				the combined Isp of the engines
@@ -79,7 +97,7 @@ public abstract class BaseThruster extends BaseTank implements Thrustable {
 		double denominator = 0;
 		for (Thrustable engine : engines) {
 			numerator += engine.getThrust();
-			denominator += engine.getThrust() / engine.getIsp();
+			denominator += engine.getThrust() / engine.getIsp(IspContext.UNSCALED);
 		}
 		return numerator / denominator;
 	}
@@ -101,8 +119,18 @@ public abstract class BaseThruster extends BaseTank implements Thrustable {
 	}
 	
 	@Override
-	public double getIsp() {
-		return isp;
+	public final double getDeltaV(IspContext context) {
+		return getIsp(context) * Math.log(getMass() / getDryMass()) * KERBIN_GRAVITY;
+	}
+	
+	@Override
+	public final double getIsp() {
+		return getIsp(IspContext.getDefault());
+	}
+	
+	@Override
+	public final double getIsp(IspContext context) {
+		return context.scale(isp);
 	}
 	
 	@Override
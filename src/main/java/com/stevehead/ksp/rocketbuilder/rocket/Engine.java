@@ -2,20 +2,19 @@ package com.stevehead.ksp.rocketbuilder.rocket;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.stevehead.ksp.rocketbuilder.game.Mod;
+import com.stevehead.ksp.rocketbuilder.interfaces.IspContext;
 import com.stevehead.ksp.rocketbuilder.interfaces.Moddable;
 import com.stevehead.ksp.rocketbuilder.interfaces.Nameable;
 import com.stevehead.ksp.rocketbuilder.interfaces.Thrustable;
 import com.stevehead.ksp.rocketbuilder.interfaces.Tweakscalable;
 
 public class Engine extends BaseThruster implements Moddable, Nameable, Tweakscalable {
-	/**
-	 * The scalar that is used to scale ISP. If the mod Kerbal Isp Difficulty
-	 * Scaler (KIDS) is used in game, need to set this value to that.
-	 */
-	private static double ispScaler = 1;
-	
 	/**
 	 * The string format used for its toString method. 
 	 */
@@ -36,6 +35,11 @@ public class Engine extends BaseThruster implements Moddable, Nameable, Tweaksca
 	 */
 	protected final double size;
 	
+	/**
+	 * The TweakScaled versions of the engine, by scale.
+	 */
+	private final ConcurrentMap<Double, Engine> tweakScaledEngines = new ConcurrentHashMap<Double, Engine>(4);
+	
 	/**
 	 * @param name			the display name
 	 * @param mod			the KSP mod
@@ -71,17 +75,23 @@ public class Engine extends BaseThruster implements Moddable, Nameable, Tweaksca
 	 * 
 	 * @param mod		the mod in question
 	 * @return			array of engines
+	 * @see EngineCatalog#getEngines(Mod)
 	 */
 	public static Engine[] getEngines(Mod... mods) {
-		ArrayList<Engine> engines = new ArrayList<Engine>();
+		EngineCatalog catalog = EngineCatalog.getPreDefined();
+		if (mods.length == 1) {
+			return toArray(catalog.getEngines(mods[0]));
+		}
 		
-		for (Engine.PreDefined engine : Engine.PreDefined.values()) {
-			if (Arrays.asList(mods).contains(engine.getMod())) {
-				engines.add(engine.toEngine());
+		EnumSet<Mod> modSet = EnumSet.noneOf(Mod.class);
+		modSet.addAll(Arrays.asList(mods));
+		ArrayList<Engine> engines = new ArrayList<Engine>();
+		for (Engine engine : catalog.getEngines()) {
+			if (modSet.contains(engine.getMod())) {
+				engines.add(engine);
 			}
 		}
-		
-		return engines.toArray(new Engine[engines.size()]);
+		return toArray(engines);
 	}
 	
 	/**
@@ -89,18 +99,26 @@ public class Engine extends BaseThruster implements Moddable, Nameable, Tweaksca
 	 * 
 	 * @param size		the diameter
 	 * @return			array of engines
+	 * @see EngineCatalog#getEngines(double)
 	 */
 	public static Engine[] getEngines(double... sizes) {
-		ArrayList<Engine> engines = new ArrayList<Engine>();
+		EngineCatalog catalog = EngineCatalog.getPreDefined();
+		if (sizes.length == 1) {
+			return toArray(catalog.getEngines(sizes[0]));
+		}
 		
-		for (Engine.PreDefined engine : Engine.PreDefined.values()) {
+		ArrayList<Engine> engines = new ArrayList<Engine>();
+		for (Engine engine : catalog.getEngines()) {
 			for (double size : sizes) {
 				if (size == engine.getSize()) {
-					engines.add(engine.toEngine());
+					engines.add(engine);
 				}
 			}
 		}
-		
+		return toArray(engines);
+	}
+	
+	private static Engine[] toArray(List<Engine> engines) {
 		return engines.toArray(new Engine[engines.size()]);
 	}
 	
@@ -121,44 +139,81 @@ public class Engine extends BaseThruster implements Moddable, Nameable, Tweaksca
 	
 	@Override
 	public String toString() {
-		return String.format(TO_STRING_FORMAT, name);
+		return String.format(TO_STRING_FORMAT, getName());
 	}
 	
+	/**
+	 * Returns the engine at another scale. Each scale is only worked out once,
+	 * later calls return the same engine.
+	 */
 	@Override
 	public Engine tweakScale(double scale) {
 		// If the scale is the same, then no point in re-creating the object.
-		if (scale != getSize())
-		{
-			double ratio = scale / getSize();
-			double dryMass = getDryMass() * Math.pow(ratio, TWEAKSCALE_MASS_EXPONENT);
-			double mass = getMass() * Math.pow(ratio, TWEAKSCALE_MASS_EXPONENT);
-			double thrust = getThrust() * Math.pow(ratio, TWEAKSCALE_THRUST_EXPONENT);
-			return new Engine(getName() + " (TweakScale " + scale + "m)", getMod(), dryMass, mass, thrust, getIsp(), scale, getPropellants());
+		if (scale == getSize()) return this;
+		
+		Engine engine = tweakScaledEngines.get(scale);
+		if (engine == null) {
+			engine = new TweakScaled(this, scale);
+			Engine existing = tweakScaledEngines.putIfAbsent(scale, engine);
+			if (existing != null) engine = existing;
 		}
-		return this;
-	}
-	
-	@Override
-	public double getIsp() {
-		return getIspScaler() * isp;
+		return engine;
 	}
 	
 	/**
-	 * Gets the current ISP Scaler.
+	 * Gets the current ISP Scaler, the one of the default IspContext.
 	 * 
 	 * @return		the ISP scaler
 	 */
 	public final static double getIspScaler() {
-		return Engine.ispScaler;
+		return IspContext.getDefault().getIspScaler();
 	}
 	
 	/**
-	 * Sets the ISP Scaler.
+	 * Sets the ISP Scaler. If the mod Kerbal Isp Difficulty Scaler (KIDS) is
+	 * used in game, need to set this value to that. This is only the default
+	 * for getIsp() and getDeltaV(), searches carry their own IspContext.
 	 * 
 	 * @param ispScaler		the ISP scaler
 	 */
 	public final static void setIspScaler(double ispScaler) {
-		Engine.ispScaler = ispScaler;
+		IspContext.setDefault(new IspContext(ispScaler));
+	}
+	
+	/**
+	 * TweakScaled is an engine resized by TweakScale. It keeps the original
+	 * engine's name, and its own display name is only put together when it's
+	 * asked for.
+	 */
+	private static final class TweakScaled extends Engine {
+		private volatile String displayName;
+		
+		/**
+		 * @param original		the engine being resized
+		 * @param scale			the new diameter in meters
+		 */
+		private TweakScaled(Engine original, double scale) {
+			super(
+					original.getName(),
+					original.getMod(),
+					original.getDryMass() * TweakScaleTable.getMassFactor(original.getSize(), scale),
+					original.getMass() * TweakScaleTable.getMassFactor(original.getSize(), scale),
+					original.getThrust() * TweakScaleTable.getThrustFactor(original.getSize(), scale),
+					original.isp,
+					scale,
+					original.getPropellants()
+					);
+		}
+		
+		@Override
+		public String getName() {
+			String displayName = this.displayName;
+			if (displayName == null) {
+				displayName = name + " (TweakScale " + getSize() + "m)";
+				this.displayName = displayName;
+			}
+			return displayName;
+		}
 	}
 	
 	/**
@@ -266,11 +321,21 @@ public class Engine extends BaseThruster implements Moddable, Nameable, Tweaksca
 			return engine.getDeltaV();
 		}
 
+		@Override
+		public double getDeltaV(IspContext context) {
+			return engine.getDeltaV(context);
+		}
+
 		@Override
 		public double getIsp() {
 			return engine.getIsp();
 		}
 
+		@Override
+		public double getIsp(IspContext context) {
+			return engine.getIsp(context);
+		}
+
 		@Override
 		public double getMinTWR() {
 			return engine.getMinTWR();
@@ -310,5 +375,10 @@ public class Engine extends BaseThruster implements Moddable, Nameable, Tweaksca
 		public Type getType() {
 			return engine.getType();
 		}
+		
+		@Override
+		public int getPropellantMask() {
+			return engine.getPropellantMask();
+		}
 	}
 }
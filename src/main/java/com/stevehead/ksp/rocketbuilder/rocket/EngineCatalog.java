@@ -0,0 +1,271 @@
+package com.stevehead.ksp.rocketbuilder.rocket;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.stevehead.ksp.rocketbuilder.game.Mod;
+
+/**
+ * EngineCatalog is an immutable index of engines by mod, size and thrust.
+ * It's built once, and every query returns a shared read-only list, in the
+ * catalog's order unless stated otherwise, without copying.
+ *
+ * @author Steve Johnson
+ */
+public final class EngineCatalog {
+	/**
+	 * All engines in catalog order.
+	 */
+	private final List<Engine> engines;
+
+	/**
+	 * The engines of each mod.
+	 */
+	private final Map<Mod, List<Engine>> modEngines;
+
+	/**
+	 * The engines of each size.
+	 */
+	private final Map<Double, List<Engine>> sizeEngines;
+
+	/**
+	 * The engines of each size within each mod.
+	 */
+	private final Map<Mod, Map<Double, List<Engine>>> modSizeEngines;
+
+	/**
+	 * Every size in the catalog, smallest first.
+	 */
+	private final double[] sizes;
+
+	/**
+	 * All engines from the least to the most thrust, and their thrusts.
+	 */
+	private final List<Engine> thrustEngines;
+	private final double[] thrusts;
+
+	/**
+	 * The engines packed into primitive arrays, in catalog order.
+	 */
+	private final PackedEngines packedEngines;
+
+	/**
+	 * @param engines		the engines of the catalog, in catalog order
+	 */
+	public EngineCatalog(Collection<? extends Engine> engines) {
+		List<Engine> allEngines = new ArrayList<Engine>(engines);
+		Map<Mod, List<Engine>> modEngines = new EnumMap<Mod, List<Engine>>(Mod.class);
+		Map<Double, List<Engine>> sizeEngines = new HashMap<Double, List<Engine>>();
+		Map<Mod, Map<Double, List<Engine>>> modSizeEngines = new EnumMap<Mod, Map<Double, List<Engine>>>(Mod.class);
+
+		for (Engine engine : allEngines) {
+			getBucket(modEngines, engine.getMod()).add(engine);
+			getBucket(sizeEngines, engine.getSize()).add(engine);
+			Map<Double, List<Engine>> modSizes = modSizeEngines.get(engine.getMod());
+			if (modSizes == null) {
+				modSizes = new HashMap<Double, List<Engine>>();
+				modSizeEngines.put(engine.getMod(), modSizes);
+			}
+			getBucket(modSizes, engine.getSize()).add(engine);
+		}
+
+		this.engines = Collections.unmodifiableList(allEngines);
+		this.modEngines = freeze(modEngines);
+		this.sizeEngines = freeze(sizeEngines);
+		for (Map.Entry<Mod, Map<Double, List<Engine>>> entry : modSizeEngines.entrySet()) {
+			entry.setValue(freeze(entry.getValue()));
+		}
+		this.modSizeEngines = modSizeEngines;
+
+		this.sizes = new double[sizeEngines.size()];
+		int i = 0;
+		for (double size : sizeEngines.keySet()) {
+			sizes[i++] = size;
+		}
+		Arrays.sort(sizes);
+
+		List<Engine> thrustEngines = new ArrayList<Engine>(allEngines);
+		Collections.sort(thrustEngines, new Comparator<Engine>() {
+			@Override
+			public int compare(Engine engine1, Engine engine2) {
+				return Double.compare(engine1.getThrust(), engine2.getThrust());
+			}
+		});
+		this.thrustEngines = Collections.unmodifiableList(thrustEngines);
+		this.thrusts = new double[thrustEngines.size()];
+		for (i = 0; i < thrusts.length; i++) {
+			thrusts[i] = thrustEngines.get(i).getThrust();
+		}
+
+		this.packedEngines = new PackedEngines(allEngines);
+	}
+
+	/**
+	 * @param engines		the engines of the catalog, in catalog order
+	 */
+	public EngineCatalog(Engine... engines) {
+		this(Arrays.asList(engines));
+	}
+
+	/**
+	 * Returns the catalog of every pre-defined engine, in declaration order.
+	 *
+	 * @return		the catalog
+	 */
+	public static EngineCatalog getPreDefined() {
+		return PreDefinedHolder.CATALOG;
+	}
+
+	/**
+	 * @return		every engine
+	 */
+	public List<Engine> getEngines() {
+		return engines;
+	}
+
+	/**
+	 * @param mod		the mod
+	 * @return			the engines from the mod
+	 */
+	public List<Engine> getEngines(Mod mod) {
+		return orEmpty(modEngines.get(mod));
+	}
+
+	/**
+	 * @param size		the diameter in meters
+	 * @return			the engines with the diameter
+	 */
+	public List<Engine> getEngines(double size) {
+		return orEmpty(sizeEngines.get(size));
+	}
+
+	/**
+	 * @param size		the diameter in meters
+	 * @param mod		the mod
+	 * @return			the engines from the mod with the diameter
+	 */
+	public List<Engine> getEngines(double size, Mod mod) {
+		Map<Double, List<Engine>> modSizes = modSizeEngines.get(mod);
+		return modSizes == null ? Collections.<Engine>emptyList() : orEmpty(modSizes.get(size));
+	}
+
+	/**
+	 * Returns the engines within a thrust range, from the least thrust to the
+	 * most.
+	 *
+	 * @param minThrust		the least thrust in N, inclusive
+	 * @param maxThrust		the most thrust in N, inclusive
+	 * @return				the engines within the range
+	 */
+	public List<Engine> getEnginesByThrust(double minThrust, double maxThrust) {
+		int from = lowerBound(thrusts, minThrust);
+		int to = upperBound(thrusts, maxThrust);
+		return from < to ? thrustEngines.subList(from, to) : Collections.<Engine>emptyList();
+	}
+
+	/**
+	 * @return		the engines packed into primitive arrays, one row per
+	 * 				engine in catalog order
+	 */
+	public PackedEngines getPackedEngines() {
+		return packedEngines;
+	}
+
+	/**
+	 * @return		every size in the catalog, smallest first
+	 */
+	public double[] getSizes() {
+		return sizes.clone();
+	}
+
+	/**
+	 * @return		every mod with engines in the catalog
+	 */
+	public Set<Mod> getMods() {
+		return modEngines.keySet();
+	}
+
+	/**
+	 * @return		the number of engines
+	 */
+	public int size() {
+		return engines.size();
+	}
+
+	private static <K> List<Engine> getBucket(Map<K, List<Engine>> buckets, K key) {
+		List<Engine> bucket = buckets.get(key);
+		if (bucket == null) {
+			bucket = new ArrayList<Engine>();
+			buckets.put(key, bucket);
+		}
+		return bucket;
+	}
+
+	private static <K> Map<K, List<Engine>> freeze(Map<K, List<Engine>> buckets) {
+		for (Map.Entry<K, List<Engine>> entry : buckets.entrySet()) {
+			entry.setValue(Collections.unmodifiableList(entry.getValue()));
+		}
+		return Collections.unmodifiableMap(buckets);
+	}
+
+	private static List<Engine> orEmpty(List<Engine> engines) {
+		return engines == null ? Collections.<Engine>emptyList() : engines;
+	}
+
+	/**
+	 * @return		the first index whose value is at least the key
+	 */
+	private static int lowerBound(double[] values, double key) {
+		int low = 0;
+		int high = values.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (values[middle] < key) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * @return		the first index whose value is above the key
+	 */
+	private static int upperBound(double[] values, double key) {
+		int low = 0;
+		int high = values.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (values[middle] <= key) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Builds the pre-defined catalog on first use.
+	 */
+	private static final class PreDefinedHolder {
+		private static final EngineCatalog CATALOG;
+
+		static {
+			List<Engine> engines = new ArrayList<Engine>();
+			for (Engine.PreDefined engine : Engine.PreDefined.values()) {
+				engines.add(engine.toEngine());
+			}
+			CATALOG = new EngineCatalog(engines);
+		}
+	}
+}
@@ -19,7 +19,7 @@ public class EngineCluster extends BaseThruster {
 	public EngineCluster(Thrustable... engines) {
 		super(calculateDryMass(engines), calculateMass(engines),
 				calculateThrust(engines),calculateIsp(engines),
-				combinePropellants(engines));
+				combinePropellantMasks(engines));
 		this.engines = engines;
 	}
 	
@@ -0,0 +1,228 @@
+package com.stevehead.ksp.rocketbuilder.rocket;
+
+import java.util.List;
+
+import com.stevehead.ksp.rocketbuilder.game.Mod;
+import com.stevehead.ksp.rocketbuilder.interfaces.IspContext;
+
+/**
+ * PackedEngines keeps the numbers of a list of engines in parallel primitive
+ * arrays, one row per engine, so bulk scans run as tight loops over plain
+ * doubles instead of calling through engine objects. It's immutable, and
+ * every row is copied from its engine, so the two never disagree.
+ * <p>
+ * The Isp is stored unscaled.
+ *
+ * @author Steve Johnson
+ */
+public final class PackedEngines {
+	private final Engine[] engines;
+	private final Mod[] mods;
+	private final double[] dryMasses;
+	private final double[] masses;
+	private final double[] thrusts;
+	private final double[] isps;
+	private final double[] sizes;
+	private final int[] propellantMasks;
+
+	/**
+	 * @param engines		the engines, one row each in the same order
+	 */
+	public PackedEngines(List<? extends Engine> engines) {
+		int rows = engines.size();
+		this.engines = engines.toArray(new Engine[rows]);
+		this.mods = new Mod[rows];
+		this.dryMasses = new double[rows];
+		this.masses = new double[rows];
+		this.thrusts = new double[rows];
+		this.isps = new double[rows];
+		this.sizes = new double[rows];
+		this.propellantMasks = new int[rows];
+		for (int row = 0; row < rows; row++) {
+			Engine engine = this.engines[row];
+			mods[row] = engine.getMod();
+			dryMasses[row] = engine.getDryMass();
+			masses[row] = engine.getMass();
+			thrusts[row] = engine.getThrust();
+			isps[row] = engine.getIsp(IspContext.UNSCALED);
+			sizes[row] = engine.getSize();
+			propellantMasks[row] = Propellant.getMask(engine.getPropellants());
+		}
+	}
+
+	/**
+	 * Returns the packed pre-defined engines. The row of an engine is its
+	 * Engine.PreDefined ordinal.
+	 *
+	 * @return		the packed engines
+	 */
+	public static PackedEngines getPreDefined() {
+		return EngineCatalog.getPreDefined().getPackedEngines();
+	}
+
+	/**
+	 * @return		the number of rows
+	 */
+	public int size() {
+		return engines.length;
+	}
+
+	public Engine getEngine(int row) {
+		return engines[row];
+	}
+
+	public Mod getMod(int row) {
+		return mods[row];
+	}
+
+	public double getDryMass(int row) {
+		return dryMasses[row];
+	}
+
+	public double getMass(int row) {
+		return masses[row];
+	}
+
+	public double getThrust(int row) {
+		return thrusts[row];
+	}
+
+	/**
+	 * @param row		the row
+	 * @return			the unscaled Isp in seconds
+	 */
+	public double getIsp(int row) {
+		return isps[row];
+	}
+
+	/**
+	 * @param row		the row
+	 * @param context	the Isp scaler
+	 * @return			the scaled Isp in seconds
+	 */
+	public double getIsp(int row, IspContext context) {
+		return context.scale(isps[row]);
+	}
+
+	public double getSize(int row) {
+		return sizes[row];
+	}
+
+	/**
+	 * @param row		the row
+	 * @return			the propellants as a Propellant mask
+	 */
+	public int getPropellantMask(int row) {
+		return propellantMasks[row];
+	}
+
+	/**
+	 * @param size		the diameter in meters
+	 * @return			the rows with the diameter, in order
+	 */
+	public int[] selectBySize(double size) {
+		int count = 0;
+		for (int row = 0; row < sizes.length; row++) {
+			if (sizes[row] == size) count++;
+		}
+		int[] rows = new int[count];
+		count = 0;
+		for (int row = 0; row < sizes.length; row++) {
+			if (sizes[row] == size) rows[count++] = row;
+		}
+		return rows;
+	}
+
+	/**
+	 * @param minThrust		the least thrust in N, inclusive
+	 * @param maxThrust		the most thrust in N, inclusive
+	 * @return				the rows within the range, in order
+	 */
+	public int[] selectByThrust(double minThrust, double maxThrust) {
+		int count = 0;
+		for (int row = 0; row < thrusts.length; row++) {
+			if (thrusts[row] >= minThrust && thrusts[row] <= maxThrust) count++;
+		}
+		int[] rows = new int[count];
+		count = 0;
+		for (int row = 0; row < thrusts.length; row++) {
+			if (thrusts[row] >= minThrust && thrusts[row] <= maxThrust) rows[count++] = row;
+		}
+		return rows;
+	}
+
+	/**
+	 * @param propellantMask	the propellants as a Propellant mask
+	 * @return					the rows using exactly those propellants, in order
+	 */
+	public int[] selectByPropellants(int propellantMask) {
+		int count = 0;
+		for (int row = 0; row < propellantMasks.length; row++) {
+			if (propellantMasks[row] == propellantMask) count++;
+		}
+		int[] rows = new int[count];
+		count = 0;
+		for (int row = 0; row < propellantMasks.length; row++) {
+			if (propellantMasks[row] == propellantMask) rows[count++] = row;
+		}
+		return rows;
+	}
+
+	/**
+	 * Ranks rows from the highest Isp to the lowest. Rows with the same Isp
+	 * keep their order.
+	 *
+	 * @param rows		the rows to rank
+	 * @return			the ranked rows
+	 */
+	public int[] rankByIsp(int[] rows) {
+		return rankDescending(rows, isps);
+	}
+
+	/**
+	 * Ranks rows from the highest thrust-to-weight ratio to the lowest. Rows
+	 * with the same ratio keep their order.
+	 *
+	 * @param rows		the rows to rank
+	 * @return			the ranked rows
+	 */
+	public int[] rankByTWR(int[] rows) {
+		double[] twrs = new double[engines.length];
+		for (int i = 0; i < rows.length; i++) {
+			int row = rows[i];
+			twrs[row] = thrusts[row] / masses[row];
+		}
+		return rankDescending(rows, twrs);
+	}
+
+	/**
+	 * Sorts rows by a key, highest first, with a stable bottom-up merge sort.
+	 *
+	 * @param rows		the rows
+	 * @param keys		the key of every row
+	 * @return			the sorted rows
+	 */
+	private static int[] rankDescending(int[] rows, double[] keys) {
+		int[] source = rows.clone();
+		int[] target = new int[rows.length];
+		for (int width = 1; width < source.length; width *= 2) {
+			for (int low = 0; low < source.length; low += 2 * width) {
+				int middle = Math.min(low + width, source.length);
+				int high = Math.min(low + 2 * width, source.length);
+				int left = low;
+				int right = middle;
+				for (int i = low; i < high; i++) {
+					if (left < middle && (right >= high || keys[source[left]] >= keys[source[right]])) {
+						target[i] = source[left++];
+					} else {
+						target[i] = source[right++];
+					}
+				}
+			}
+			int[] swap = source;
+			source = target;
+			target = swap;
+		}
+		return source;
+	}
+}
@@ -11,6 +11,28 @@ public class ProceduralTank extends FuelTank {
 	 */
 	public static final double PROCEDURAL_TANK_MP_MASS_RATIO = 1.0 / 5.0;
 	
+	/**
+	 * The dry-to-wet mass ratio of each propellant mask, or NaN if the tank
+	 * type isn't supported.
+	 */
+	private static final double[] MASK_DRY_MASS_RATIOS = new double[PROPELLANT_MASKS];
+	
+	static {
+		for (int mask = 0; mask < PROPELLANT_MASKS; mask++) {
+			switch (getTankType(mask)) {
+			case LIQUID_FUEL_AND_OXIDIZER:
+				MASK_DRY_MASS_RATIOS[mask] = PROCEDURAL_TANK_LF_OX_MASS_RATIO;
+				break;
+			case MONOPROPELLANT:
+				MASK_DRY_MASS_RATIOS[mask] = PROCEDURAL_TANK_MP_MASS_RATIO;
+				break;
+			default:
+				MASK_DRY_MASS_RATIOS[mask] = Double.NaN;
+				break;
+			}
+		}
+	}
+	
 	/**
 	 * @param totalMass		total mass in kg
 	 * @param propellants	propellants used
@@ -23,18 +45,36 @@ public class ProceduralTank extends FuelTank {
 	 * Calculates the dry mass based on the tank type.
 	 * 
 	 * @param totalMass		total mass in kg
-	 * @param type			type of tank
+	 * @param propellants	propellants used
 	 * @return				dry mass in kg
 	 */
 	private static double determineDryMass(double totalMass, Propellant... propellants) {
-		Type type = determineTankType(determinePropellants(propellants));
-		switch (type) {
-		case LIQUID_FUEL_AND_OXIDIZER:
-			return PROCEDURAL_TANK_LF_OX_MASS_RATIO * totalMass;
-		case MONOPROPELLANT:
-			return PROCEDURAL_TANK_MP_MASS_RATIO * totalMass;
-		default:
-			throw new IllegalArgumentException("The provided tank type is currently not supported: " + type + ".");
+		return getDryMassRatio(propellants) * totalMass;
+	}
+	
+	/**
+	 * Returns the dry-to-wet mass ratio of a procedural tank holding the
+	 * given propellants.
+	 * 
+	 * @param propellants	propellants used
+	 * @return				the dry-to-wet mass ratio
+	 */
+	public static double getDryMassRatio(Propellant... propellants) {
+		return getDryMassRatio(Propellant.getMask(determinePropellants(propellants)));
+	}
+	
+	/**
+	 * Returns the dry-to-wet mass ratio of a procedural tank holding the
+	 * given propellants.
+	 * 
+	 * @param propellantMask	the propellants used, as a Propellant mask
+	 * @return					the dry-to-wet mass ratio
+	 */
+	public static double getDryMassRatio(int propellantMask) {
+		double ratio = MASK_DRY_MASS_RATIOS[propellantMask];
+		if (Double.isNaN(ratio)) {
+			throw new IllegalArgumentException("The provided tank type is currently not supported: " + getTankType(propellantMask) + ".");
 		}
+		return ratio;
 	}
 }
@@ -35,4 +35,25 @@ public enum Propellant {
 	public double getDensity() {
 		return density;
 	}
+	
+	/**
+	 * @return		the bit of the propellant in a propellant mask
+	 */
+	public int getMask() {
+		return 1 << ordinal();
+	}
+	
+	/**
+	 * Packs propellants into a mask with one bit per propellant.
+	 * 
+	 * @param propellants	the propellants
+	 * @return				the propellant mask
+	 */
+	public static int getMask(Propellant... propellants) {
+		int mask = 0;
+		for (Propellant propellant : propellants) {
+			mask |= propellant.getMask();
+		}
+		return mask;
+	}
 }
@@ -3,6 +3,7 @@ package com.stevehead.ksp.rocketbuilder.rocket;
 import java.util.ArrayList;
 import java.util.Collections;
 
+import com.stevehead.ksp.rocketbuilder.interfaces.IspContext;
 import com.stevehead.ksp.rocketbuilder.interfaces.Massive;
 import com.stevehead.ksp.rocketbuilder.interfaces.Thrustable;
 
@@ -10,13 +11,23 @@ public class Rocket {
 	
 	private final Stage[] stages;
 	
-	public Rocket(Stage... stages) {
+	/**
+	 * The Isp scaler the rocket was designed with, or null for the global one.
+	 */
+	private final IspContext ispContext;
+	
+	public Rocket(IspContext ispContext, Stage... stages) {
 		if (stages.length < 1) {
 			throw new IllegalArgumentException("At least one stage is required.");
 		}
+		this.ispContext = ispContext;
 		this.stages = stages;
 	}
 	
+	public Rocket(Stage... stages) {
+		this(null, stages);
+	}
+	
 	public Stage[] getStages() {
 		return stages;
 	}
@@ -33,10 +44,18 @@ public class Rocket {
 		return getStage(0).getMass();
 	}
 	
+	public IspContext getIspContext() {
+		return ispContext != null ? ispContext : IspContext.getDefault();
+	}
+	
 	public double getTotalDeltaV() {
+		return getTotalDeltaV(getIspContext());
+	}
+	
+	public double getTotalDeltaV(IspContext context) {
 		double deltaV = 0;
 		for (Stage stage : stages) {
-			deltaV += stage.getDeltaV();
+			deltaV += stage.getDeltaV(context);
 		}
 		return deltaV;
 	}
@@ -48,6 +67,7 @@ public class Rocket {
 	public static class Builder {
 		private final Massive payload;
 		private ArrayList<Stage> stages = new ArrayList<Stage>();
+		private IspContext ispContext;
 		
 		public Builder(Massive payload) {
 			this.payload = payload;
@@ -61,6 +81,11 @@ public class Rocket {
 			this(0);
 		}
 		
+		public Builder setIspContext(IspContext ispContext) {
+			this.ispContext = ispContext;
+			return this;
+		}
+		
 		public Builder addStage(Stage stage) {
 			stages.add(stage);
 			return this;
@@ -92,7 +117,7 @@ public class Rocket {
 		public Rocket build() {
 			Collections.reverse(stages);
 			Stage[] stageArray = new Stage[stages.size()];
-			return new Rocket(stages.toArray(stageArray));
+			return new Rocket(ispContext, stages.toArray(stageArray));
 		}
 	}
 }
@@ -2,6 +2,7 @@ package com.stevehead.ksp.rocketbuilder.rocket;
 
 import java.util.Arrays;
 
+import com.stevehead.ksp.rocketbuilder.interfaces.IspContext;
 import com.stevehead.ksp.rocketbuilder.interfaces.Thrustable;
 
 /**
@@ -20,8 +21,8 @@ public class Stack extends BaseThruster {
 				calculateDryMass(fuelTank, engine),
 				calculateMass(fuelTank, engine),
 				engine.getThrust(),
-				engine.getIsp(),
-				combinePropellants(fuelTank, engine)
+				engine.getIsp(IspContext.UNSCALED),
+				combinePropellantMasks(fuelTank, engine)
 				);
 		
 		if (fuelTank.getType() != engine.getType()) {
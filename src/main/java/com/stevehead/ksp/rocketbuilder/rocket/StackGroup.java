@@ -0,0 +1,64 @@
+package com.stevehead.ksp.rocketbuilder.rocket;
+
+/**
+ * StackGroup is a number of identical stacks fired together, such as the
+ * radial stacks of an asparagus stage. Its totals are the stack's totals
+ * multiplied by the count.
+ *
+ * @author Steve Johnson
+ */
+public final class StackGroup {
+	/**
+	 * The repeated stack.
+	 */
+	private final Stack stack;
+
+	/**
+	 * The number of times the stack is repeated.
+	 */
+	private final int count;
+
+	/**
+	 * @param stack		the stack
+	 * @param count		the number of times the stack is repeated
+	 */
+	public StackGroup(Stack stack, int count) {
+		if (stack == null) {
+			throw new IllegalArgumentException("The stack must be provided.");
+		}
+		if (count < 1) {
+			throw new IllegalArgumentException("A stack group needs at least one stack.");
+		}
+		this.stack = stack;
+		this.count = count;
+	}
+
+	public Stack getStack() {
+		return stack;
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * @return		the combined dry mass of the stacks in kg
+	 */
+	public double getDryMass() {
+		return count * stack.getDryMass();
+	}
+
+	/**
+	 * @return		the combined mass of the stacks in kg
+	 */
+	public double getMass() {
+		return count * stack.getMass();
+	}
+
+	/**
+	 * @return		the combined thrust of the stacks in N
+	 */
+	public double getThrust() {
+		return count * stack.getThrust();
+	}
+}
@@ -1,21 +1,23 @@
 package com.stevehead.ksp.rocketbuilder.rocket;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import com.stevehead.ksp.rocketbuilder.interfaces.IspContext;
 import com.stevehead.ksp.rocketbuilder.interfaces.Massive;
 
 public class Stage extends BaseThruster {
+	/**
+	 * The stacks of the stage, grouped by stack.
+	 */
+	private final StackGroup[] groups;
 	
 	/**
 	 * @param payload		the payload
 	 * @param stacks		the stacks
 	 */
 	public Stage(Massive payload, Stack... stacks) {
-		super(
-				payload.getMass() + calculateDryMass(stacks),
-				payload.getMass() + calculateMass(stacks),
-				calculateThrust(stacks),
-				calculateIsp(stacks),
-				combinePropellants(stacks)
-				);
+		this(payload, group(stacks));
 	}
 	
 	/**
@@ -24,6 +26,117 @@ public class Stage extends BaseThruster {
 	 * @param stackNumber	the number of times the stack is repeated
 	 */
 	public Stage(Massive payload, Stack stack, int stackNumber) {
-		this(payload, stack.duplicate(stackNumber));
+		this(payload, new StackGroup(stack, stackNumber));
+	}
+	
+	/**
+	 * @param payload		the payload
+	 * @param groups		the groups of identical stacks
+	 */
+	public Stage(Massive payload, StackGroup... groups) {
+		super(
+				payload.getMass() + calculateDryMass(groups),
+				payload.getMass() + calculateMass(groups),
+				calculateThrust(groups),
+				calculateIsp(groups),
+				combinePropellantMasks(groups)
+				);
+		this.groups = groups.clone();
+	}
+	
+	/**
+	 * @return		the groups of identical stacks
+	 */
+	public StackGroup[] getGroups() {
+		return groups.clone();
+	}
+	
+	/**
+	 * @return		the number of stacks over all groups
+	 */
+	public int getStackCount() {
+		int count = 0;
+		for (StackGroup group : groups) {
+			count += group.getCount();
+		}
+		return count;
+	}
+	
+	/**
+	 * Groups repeated stacks, in the order each stack first appears.
+	 * 
+	 * @param stacks		the stacks
+	 * @return				the groups of identical stacks
+	 */
+	private static StackGroup[] group(Stack... stacks) {
+		List<Stack> distinct = new ArrayList<Stack>();
+		List<Integer> counts = new ArrayList<Integer>();
+		for (Stack stack : stacks) {
+			int index = -1;
+			for (int i = 0; i < distinct.size(); i++) {
+				if (distinct.get(i) == stack) {
+					index = i;
+					break;
+				}
+			}
+			if (index < 0) {
+				distinct.add(stack);
+				counts.add(1);
+			} else {
+				counts.set(index, counts.get(index) + 1);
+			}
+		}
+		StackGroup[] groups = new StackGroup[distinct.size()];
+		for (int i = 0; i < groups.length; i++) {
+			groups[i] = new StackGroup(distinct.get(i), counts.get(i));
+		}
+		return groups;
+	}
+	
+	private static double calculateDryMass(StackGroup... groups) {
+		double dryMass = 0;
+		for (StackGroup group : groups) {
+			dryMass += group.getDryMass();
+		}
+		return dryMass;
+	}
+	
+	private static double calculateMass(StackGroup... groups) {
+		double mass = 0;
+		for (StackGroup group : groups) {
+			mass += group.getMass();
+		}
+		return mass;
+	}
+	
+	private static double calculateThrust(StackGroup... groups) {
+		double thrust = 0;
+		for (StackGroup group : groups) {
+			thrust += group.getThrust();
+		}
+		return thrust;
+	}
+	
+	/**
+	 * Calculates the combined unscaled Isp of the groups. Identical stacks
+	 * share an Isp, so each group weighs in by its combined thrust.
+	 */
+	private static double calculateIsp(StackGroup... groups) {
+		double numerator = 0;
+		double denominator = 0;
+		for (StackGroup group : groups) {
+			double thrust = group.getThrust();
+			numerator += thrust;
+			denominator += thrust / group.getStack().getIsp(IspContext.UNSCALED);
+		}
+		return numerator / denominator;
+	}
+	
+	private static int combinePropellantMasks(StackGroup... groups) {
+		int mask = 0;
+		for (StackGroup group : groups) {
+			mask |= group.getStack().getPropellantMask();
+		}
+		return mask;
 	}
 }
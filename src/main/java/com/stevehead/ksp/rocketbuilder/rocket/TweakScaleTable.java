@@ -0,0 +1,67 @@
+package com.stevehead.ksp.rocketbuilder.rocket;
+
+import com.stevehead.ksp.rocketbuilder.interfaces.Tweakscalable;
+
+/**
+ * TweakScaleTable holds the TweakScale mass and thrust factors between
+ * every pair of standard part sizes, so scaling between them needs no
+ * Math.pow. Other sizes are worked out as they come.
+ *
+ * @author Steve Johnson
+ */
+final class TweakScaleTable {
+	/**
+	 * The standard part sizes in meters.
+	 */
+	private static final double[] SIZES = {0.625, 1.25, 1.875, 2.5, 3.75, 5.0, 7.5};
+
+	/**
+	 * The factors from the size at the first index to the size at the second.
+	 */
+	private static final double[][] MASS_FACTORS = new double[SIZES.length][SIZES.length];
+	private static final double[][] THRUST_FACTORS = new double[SIZES.length][SIZES.length];
+
+	static {
+		for (int i = 0; i < SIZES.length; i++) {
+			for (int j = 0; j < SIZES.length; j++) {
+				double ratio = SIZES[j] / SIZES[i];
+				MASS_FACTORS[i][j] = Math.pow(ratio, Tweakscalable.TWEAKSCALE_MASS_EXPONENT);
+				THRUST_FACTORS[i][j] = Math.pow(ratio, Tweakscalable.TWEAKSCALE_THRUST_EXPONENT);
+			}
+		}
+	}
+
+	private TweakScaleTable() {
+	}
+
+	/**
+	 * @param size			the original size in meters
+	 * @param scale			the new size in meters
+	 * @return				what the mass is multiplied by
+	 */
+	static double getMassFactor(double size, double scale) {
+		int from = indexOf(size);
+		int to = indexOf(scale);
+		if (from < 0 || to < 0) return Math.pow(scale / size, Tweakscalable.TWEAKSCALE_MASS_EXPONENT);
+		return MASS_FACTORS[from][to];
+	}
+
+	/**
+	 * @param size			the original size in meters
+	 * @param scale			the new size in meters
+	 * @return				what the thrust is multiplied by
+	 */
+	static double getThrustFactor(double size, double scale) {
+		int from = indexOf(size);
+		int to = indexOf(scale);
+		if (from < 0 || to < 0) return Math.pow(scale / size, Tweakscalable.TWEAKSCALE_THRUST_EXPONENT);
+		return THRUST_FACTORS[from][to];
+	}
+
+	private static int indexOf(double size) {
+		for (int i = 0; i < SIZES.length; i++) {
+			if (SIZES[i] == size) return i;
+		}
+		return -1;
+	}
+}
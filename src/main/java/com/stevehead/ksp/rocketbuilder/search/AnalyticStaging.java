@@ -0,0 +1,176 @@
+package com.stevehead.ksp.rocketbuilder.search;
+
+import com.stevehead.ksp.rocketbuilder.interfaces.Thrustable;
+
+/**
+ * AnalyticStaging solves the continuous optimal staging problem with a
+ * Lagrange multiplier.
+ * <p>
+ * Minimizing the total mass for a given delta-V makes every stage burn to
+ * the same mass ratio for a given multiplier, n = (c - lambda) / (c * r),
+ * where c is the exhaust velocity and r the dry-to-wet ratio of the tank.
+ * The fixed engine masses don't change that ratio, they only change the
+ * tank mass needed to reach it. The multiplier is found by bisection so that
+ * the stages add up to the target delta-V. Tank masses are clamped to each
+ * stage's TWR floor and to the tank size window of the stage above.
+ *
+ * @author Steve Johnson
+ */
+public class AnalyticStaging {
+	/**
+	 * The number of bisection steps on the multiplier.
+	 */
+	private static final int ITERATIONS = 64;
+
+	private final double targetDeltaV;
+	private final double[] targetTWRs;
+	private final StageKernel[] kernels;
+
+	/**
+	 * @param targetDeltaV		the target delta-V in m/s
+	 * @param targetTWRs		the minimum starting TWR of each stage
+	 * @param kernels			the kernel of each stage, first stage first
+	 */
+	public AnalyticStaging(double targetDeltaV, double[] targetTWRs, StageKernel... kernels) {
+		if (targetTWRs.length != kernels.length) {
+			throw new IllegalArgumentException("A target TWR is required for every stage.");
+		}
+		this.targetDeltaV = targetDeltaV;
+		this.targetTWRs = targetTWRs;
+		this.kernels = kernels;
+	}
+
+	/**
+	 * Returns the continuous tank masses of the lightest rocket that reaches
+	 * the target delta-V.
+	 *
+	 * @param payloadMass		the payload mass in kg
+	 * @return					the tank mass of each stack by stage, or null if
+	 * 							the target can't be reached
+	 */
+	public double[] solve(double payloadMass) {
+		double[] tankMasses = new double[kernels.length];
+		if (!solve(kernels.length - 1, payloadMass, Double.NaN, targetDeltaV, tankMasses)) return null;
+		return tankMasses;
+	}
+
+	/**
+	 * Solves the stages from a given stage down, with every stage above it
+	 * already fixed. This lets a caller snap one stage to the grid at a time
+	 * and re-solve the stages beneath it.
+	 *
+	 * @param topStage			the highest stage to solve
+	 * @param upperMass			the mass carried by that stage in kg
+	 * @param upperTankMass		the tank mass of the stage above in kg, or NaN
+	 * 							if there is none
+	 * @param targetDeltaV		the delta-V the solved stages must reach in m/s
+	 * @param tankMasses		filled in with the tank mass of each solved stage
+	 * @return					whether the target can be reached
+	 */
+	public boolean solve(int topStage, double upperMass, double upperTankMass, double targetDeltaV, double[] tankMasses) {
+		// The multiplier runs from 0, where every tank is as large as its
+		// constraints allow, up to where no stage is worth any propellant.
+		double low = 0;
+		double high = 0;
+		for (int i = 0; i <= topStage; i++) {
+			high = Math.max(high, getExhaustVelocity(kernels[i]) * (1 - kernels[i].getTankDryMassRatio()));
+		}
+
+		if (getDeltaV(topStage, upperMass, upperTankMass, low, tankMasses) <= targetDeltaV) return false;
+
+		for (int i = 0; i < ITERATIONS; i++) {
+			double multiplier = (low + high) / 2;
+			if (getDeltaV(topStage, upperMass, upperTankMass, multiplier, tankMasses) > targetDeltaV) {
+				low = multiplier;
+			} else {
+				high = multiplier;
+			}
+		}
+
+		getDeltaV(topStage, upperMass, upperTankMass, low, tankMasses);
+		return true;
+	}
+
+	/**
+	 * Fills in the tank masses for a multiplier, from the top stage down, and
+	 * returns their total delta-V.
+	 *
+	 * @param topStage			the highest stage to solve
+	 * @param upperMass			the mass carried by that stage in kg
+	 * @param upperTankMass		the tank mass of the stage above in kg, or NaN
+	 * @param multiplier		the Lagrange multiplier in m/s
+	 * @param tankMasses		the tank masses to fill in
+	 * @return					the total delta-V in m/s
+	 */
+	private double getDeltaV(int topStage, double upperMass, double upperTankMass, double multiplier, double[] tankMasses) {
+		double deltaV = 0;
+
+		for (int i = topStage; i >= 0; i--) {
+			StageKernel kernel = kernels[i];
+			double tankMass = getTankMass(kernel, upperMass, getMassRatio(kernel, multiplier));
+
+			if (!Double.isNaN(upperTankMass)) {
+				double stackedTankMass = upperTankMass * kernel.getStackSize();
+				tankMass = Math.max(tankMass, stackedTankMass / StagedSearch.MAX_TANK_SIZE_RATIO);
+				tankMass = Math.min(tankMass, stackedTankMass / StagedSearch.MIN_TANK_SIZE_RATIO);
+			}
+			tankMass = Math.min(tankMass, getMaxTankMass(kernel, upperMass, targetTWRs[i]));
+			tankMass = Math.max(tankMass, 0);
+
+			double mass = kernel.getMass(upperMass, tankMass);
+			deltaV += kernel.getDeltaV(mass, kernel.getDryMass(upperMass, tankMass));
+			tankMasses[i] = tankMass;
+			upperMass = mass;
+			upperTankMass = tankMass;
+		}
+
+		return deltaV;
+	}
+
+	/**
+	 * The optimal wet-to-dry mass ratio of a stage for a multiplier.
+	 *
+	 * @param kernel			the stage
+	 * @param multiplier		the Lagrange multiplier in m/s
+	 * @return					the mass ratio
+	 */
+	private static double getMassRatio(StageKernel kernel, double multiplier) {
+		double exhaustVelocity = getExhaustVelocity(kernel);
+		return (exhaustVelocity - multiplier) / (exhaustVelocity * kernel.getTankDryMassRatio());
+	}
+
+	/**
+	 * The tank mass of each stack that gives a stage the mass ratio.
+	 *
+	 * @param kernel			the stage
+	 * @param upperMass			the mass carried by the stage in kg
+	 * @param massRatio			the wet-to-dry mass ratio
+	 * @return					the tank mass in kg, infinite if out of reach
+	 */
+	private static double getTankMass(StageKernel kernel, double upperMass, double massRatio) {
+		double tankDryMassRatio = kernel.getTankDryMassRatio();
+		if (massRatio * tankDryMassRatio >= 1) return Double.POSITIVE_INFINITY;
+
+		int stackSize = kernel.getStackSize();
+		double dryMass = upperMass + stackSize * kernel.getEngineDryMass();
+		double engineMass = upperMass + stackSize * kernel.getEngineMass();
+		return (massRatio * dryMass - engineMass) / (stackSize * (1 - massRatio * tankDryMassRatio));
+	}
+
+	/**
+	 * The largest tank mass of each stack that still meets the TWR floor.
+	 *
+	 * @param kernel			the stage
+	 * @param upperMass			the mass carried by the stage in kg
+	 * @param targetTWR			the minimum starting TWR
+	 * @return					the tank mass in kg
+	 */
+	private static double getMaxTankMass(StageKernel kernel, double upperMass, double targetTWR) {
+		double maxMass = kernel.getThrust() / (Thrustable.KERBIN_GRAVITY * targetTWR);
+		return (maxMass - upperMass) / kernel.getStackSize() - kernel.getEngineMass();
+	}
+
+	private static double getExhaustVelocity(StageKernel kernel) {
+		return kernel.getIsp() * Thrustable.KERBIN_GRAVITY;
+	}
+}
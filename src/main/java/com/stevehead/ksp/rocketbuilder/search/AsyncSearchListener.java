@@ -0,0 +1,155 @@
+package com.stevehead.ksp.rocketbuilder.search;
+
+import java.io.Closeable;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+
+import com.stevehead.ksp.rocketbuilder.search.SearchStats.Improvement;
+
+/**
+ * AsyncSearchListener buffers improvements and hands them to another
+ * listener on its own thread, so the search threads never wait on I/O. It
+ * can be shared by searches running in parallel. Events from one search
+ * arrive in order; events from different searches may interleave.
+ * <p>
+ * Flushing it delivers every buffered event before it returns, and so does
+ * closing it.
+ *
+ * @author Steve Johnson
+ */
+public class AsyncSearchListener implements SearchListener, Closeable {
+	/**
+	 * The number of events buffered before the searches have to wait.
+	 */
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	private final SearchListener listener;
+	private final BlockingQueue<Object> events;
+	private final Thread worker;
+	private volatile boolean closed;
+	private volatile RuntimeException failure;
+
+	/**
+	 * @param listener		the listener to hand the events to
+	 * @param capacity		the number of events buffered
+	 */
+	public AsyncSearchListener(SearchListener listener, int capacity) {
+		this.listener = listener;
+		this.events = new ArrayBlockingQueue<Object>(capacity);
+		this.worker = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				deliver();
+			}
+		}, "search-listener");
+		worker.setDaemon(true);
+		worker.start();
+	}
+
+	/**
+	 * @param listener		the listener to hand the events to
+	 */
+	public AsyncSearchListener(SearchListener listener) {
+		this(listener, DEFAULT_CAPACITY);
+	}
+
+	@Override
+	public void onImprovement(Improvement improvement) {
+		if (closed) {
+			throw new IllegalStateException("The listener is closed.");
+		}
+		put(improvement);
+	}
+
+	/**
+	 * Delivers every event buffered so far, and keeps the listener open.
+	 *
+	 * @throws IllegalStateException	if the listener is closed, or the
+	 * 									listener handed to threw
+	 */
+	public void flush() {
+		if (closed) {
+			throw new IllegalStateException("The listener is closed.");
+		}
+		CountDownLatch delivered = new CountDownLatch(1);
+		put(delivered);
+		boolean interrupted = false;
+		while (true) {
+			try {
+				delivered.await();
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) Thread.currentThread().interrupt();
+		if (failure != null) {
+			throw new IllegalStateException("The search listener failed.", failure);
+		}
+	}
+
+	/**
+	 * Delivers every buffered event and stops the listener's thread.
+	 *
+	 * @throws IllegalStateException	if the listener handed to threw
+	 */
+	@Override
+	public void close() {
+		if (!closed) {
+			closed = true;
+			put(EndOfEvents.INSTANCE);
+			boolean interrupted = false;
+			while (true) {
+				try {
+					worker.join();
+					break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if (interrupted) Thread.currentThread().interrupt();
+		}
+		if (failure != null) {
+			throw new IllegalStateException("The search listener failed.", failure);
+		}
+	}
+
+	private void put(Object event) {
+		try {
+			events.put(event);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while buffering a search event.", e);
+		}
+	}
+
+	private void deliver() {
+		while (true) {
+			Object event;
+			try {
+				event = events.take();
+			} catch (InterruptedException e) {
+				return;
+			}
+			if (event == EndOfEvents.INSTANCE) return;
+			if (event instanceof CountDownLatch) {
+				((CountDownLatch) event).countDown();
+				continue;
+			}
+			if (failure != null) continue;
+			try {
+				listener.onImprovement((Improvement) event);
+			} catch (RuntimeException e) {
+				failure = e;
+			}
+		}
+	}
+
+	/**
+	 * Marks the end of the events, queued by close().
+	 */
+	private enum EndOfEvents {
+		INSTANCE
+	}
+}
@@ -0,0 +1,179 @@
+package com.stevehead.ksp.rocketbuilder.search;
+
+/**
+ * DesignHeap keeps the best designs of a payload by payload fraction, in a
+ * bounded min-heap of primitive records. The worst design kept sits at the
+ * root, so a new design only has to beat the root once the heap is full.
+ * Designs of equal payload fraction rank by the order they were offered,
+ * earliest first, as the search keeps the first of equal designs.
+ * <p>
+ * Each record lives in a slot of the primitive arrays and the heap only
+ * moves slot numbers around, so no design is copied once it's in.
+ *
+ * @author Steve Johnson
+ */
+final class DesignHeap {
+	private final int capacity;
+	private final int stages;
+
+	/**
+	 * The records, one per slot.
+	 */
+	private final double[] payloadFractions;
+	private final double[] deltaVs;
+	private final double[] tankMasses;
+	private final long[] sequences;
+
+	/**
+	 * The slots in heap order, the worst design first.
+	 */
+	private final int[] heap;
+	private int size;
+	private long sequence;
+
+	/**
+	 * @param capacity		the number of designs kept
+	 * @param stages		the number of stages of every design
+	 */
+	DesignHeap(int capacity, int stages) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("At least one design must be kept.");
+		}
+		this.capacity = capacity;
+		this.stages = stages;
+		this.payloadFractions = new double[capacity];
+		this.deltaVs = new double[capacity];
+		this.tankMasses = new double[capacity * stages];
+		this.sequences = new long[capacity];
+		this.heap = new int[capacity];
+	}
+
+	/**
+	 * Drops every design.
+	 */
+	void clear() {
+		size = 0;
+		sequence = 0;
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the payload fraction a design must beat to be kept.
+	 *
+	 * @return		the payload fraction in percent, or 0 while the heap isn't
+	 * 				full
+	 */
+	double getThreshold() {
+		return size < capacity ? 0 : payloadFractions[heap[0]];
+	}
+
+	/**
+	 * Keeps a design if it's among the best so far.
+	 *
+	 * @param payloadFraction	the payload fraction in percent
+	 * @param deltaV			the total delta-V in m/s
+	 * @param designTankMasses	the tank mass of each stack, first stage first
+	 * @return					whether the design was kept
+	 */
+	boolean offer(double payloadFraction, double deltaV, double[] designTankMasses) {
+		long offered = sequence++;
+		int slot;
+		if (size < capacity) {
+			slot = size;
+			heap[size++] = slot;
+			store(slot, payloadFraction, deltaV, designTankMasses, offered);
+			siftUp(size - 1);
+		} else {
+			// The new design is the latest, so it only wins with a higher
+			// payload fraction.
+			if (payloadFraction <= payloadFractions[heap[0]]) return false;
+			slot = heap[0];
+			store(slot, payloadFraction, deltaV, designTankMasses, offered);
+			siftDown(0);
+		}
+		return true;
+	}
+
+	/**
+	 * @return		the slots of the designs, the best first
+	 */
+	int[] getSlots() {
+		int[] slots = new int[size];
+		for (int i = 0; i < size; i++) {
+			slots[i] = heap[i];
+		}
+		// Insertion sort, the heap is small.
+		for (int i = 1; i < size; i++) {
+			int slot = slots[i];
+			int j = i - 1;
+			while (j >= 0 && isWorse(slots[j], slot)) {
+				slots[j + 1] = slots[j];
+				j--;
+			}
+			slots[j + 1] = slot;
+		}
+		return slots;
+	}
+
+	double getPayloadFraction(int slot) {
+		return payloadFractions[slot];
+	}
+
+	double getDeltaV(int slot) {
+		return deltaVs[slot];
+	}
+
+	/**
+	 * @param slot		the slot
+	 * @return			the tank mass of each stack, first stage first
+	 */
+	double[] getTankMasses(int slot) {
+		double[] masses = new double[stages];
+		System.arraycopy(tankMasses, slot * stages, masses, 0, stages);
+		return masses;
+	}
+
+	private void store(int slot, double payloadFraction, double deltaV, double[] designTankMasses, long offered) {
+		payloadFractions[slot] = payloadFraction;
+		deltaVs[slot] = deltaV;
+		sequences[slot] = offered;
+		System.arraycopy(designTankMasses, 0, tankMasses, slot * stages, stages);
+	}
+
+	/**
+	 * Whether the design in one slot ranks below the design in another.
+	 */
+	private boolean isWorse(int slot, int other) {
+		if (payloadFractions[slot] != payloadFractions[other]) {
+			return payloadFractions[slot] < payloadFractions[other];
+		}
+		return sequences[slot] > sequences[other];
+	}
+
+	private void siftUp(int index) {
+		int slot = heap[index];
+		while (index > 0) {
+			int parent = (index - 1) >>> 1;
+			if (!isWorse(slot, heap[parent])) break;
+			heap[index] = heap[parent];
+			index = parent;
+		}
+		heap[index] = slot;
+	}
+
+	private void siftDown(int index) {
+		int slot = heap[index];
+		while (true) {
+			int child = 2 * index + 1;
+			if (child >= size) break;
+			if (child + 1 < size && isWorse(heap[child + 1], heap[child])) child++;
+			if (!isWorse(heap[child], slot)) break;
+			heap[index] = heap[child];
+			index = child;
+		}
+		heap[index] = slot;
+	}
+}
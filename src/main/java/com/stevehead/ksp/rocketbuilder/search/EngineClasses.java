@@ -0,0 +1,114 @@
+package com.stevehead.ksp.rocketbuilder.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.stevehead.ksp.rocketbuilder.rocket.Engine;
+import com.stevehead.ksp.rocketbuilder.rocket.PackedEngines;
+
+/**
+ * EngineClasses groups engines that perform the same in a stage: the same
+ * mass, dry mass, thrust, unscaled Isp and propellants. Every search gives
+ * the same rocket for each member of a class, so a sweep only needs to
+ * search one of them, the first in the order given.
+ * <p>
+ * Engines with the same thrust-to-mass ratio, Isp and propellants but a
+ * different mass are only the same rocket scaled up or down, and that only
+ * holds if the mass grid and the other stages scale along. A sweep keeps
+ * both, so they aren't grouped.
+ *
+ * @author Steve Johnson
+ */
+public final class EngineClasses {
+	private final PackedEngines packedEngines;
+
+	/**
+	 * The representative row of each engine's class.
+	 */
+	private final int[] representatives;
+	private final int classCount;
+
+	/**
+	 * @param engines		the engines to group
+	 */
+	public EngineClasses(Engine... engines) {
+		this.packedEngines = new PackedEngines(Arrays.asList(engines));
+		this.representatives = new int[packedEngines.size()];
+		int classCount = 0;
+		for (int row = 0; row < representatives.length; row++) {
+			representatives[row] = row;
+			for (int other = 0; other < row; other++) {
+				if (representatives[other] == other && isEquivalent(other, row)) {
+					representatives[row] = other;
+					break;
+				}
+			}
+			if (representatives[row] == row) classCount++;
+		}
+		this.classCount = classCount;
+	}
+
+	/**
+	 * @param row		the engine's index, in the order given
+	 * @return			the index of the engine searched for its class
+	 */
+	public int getRepresentative(int row) {
+		return representatives[row];
+	}
+
+	/**
+	 * @param row		the engine's index, in the order given
+	 * @return			whether the engine is searched for its class
+	 */
+	public boolean isRepresentative(int row) {
+		return representatives[row] == row;
+	}
+
+	/**
+	 * @param row		the engine's index, in the order given
+	 * @return			every engine of the engine's class, in the order given
+	 */
+	public List<Engine> getMembers(int row) {
+		List<Engine> members = new ArrayList<Engine>();
+		for (int other = 0; other < representatives.length; other++) {
+			if (representatives[other] == representatives[row]) members.add(packedEngines.getEngine(other));
+		}
+		return members;
+	}
+
+	/**
+	 * @return			the number of classes
+	 */
+	public int getClassCount() {
+		return classCount;
+	}
+
+	/**
+	 * @return			the number of engines
+	 */
+	public int size() {
+		return representatives.length;
+	}
+
+	private boolean isEquivalent(int row, int other) {
+		return packedEngines.getMass(row) == packedEngines.getMass(other)
+				&& packedEngines.getDryMass(row) == packedEngines.getDryMass(other)
+				&& packedEngines.getThrust(row) == packedEngines.getThrust(other)
+				&& packedEngines.getIsp(row) == packedEngines.getIsp(other)
+				&& packedEngines.getPropellantMask(row) == packedEngines.getPropellantMask(other);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder report = new StringBuilder();
+		report.append(classCount).append(" classes of ").append(representatives.length).append(" engines\n");
+		for (int row = 0; row < representatives.length; row++) {
+			if (!isRepresentative(row)) {
+				report.append("  ").append(packedEngines.getEngine(row).getName()).append(" is searched as ")
+						.append(packedEngines.getEngine(representatives[row]).getName()).append('\n');
+			}
+		}
+		return report.toString();
+	}
+}
@@ -0,0 +1,224 @@
+package com.stevehead.ksp.rocketbuilder.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import com.stevehead.ksp.rocketbuilder.rocket.Engine;
+import com.stevehead.ksp.rocketbuilder.rocket.PackedEngines;
+
+/**
+ * EnginePruning finds the engines that can't do better in a stage than some
+ * other engine of the same size and propellants, for each role an engine
+ * can have in a sweep. An engine is dominated when another is no worse on
+ * every number the role depends on and better on one:
+ * <ul>
+ * <li>first stage: thrust, thrust-to-mass ratio, Isp and dry mass</li>
+ * <li>upper stage: Isp, mass, dry mass and thrust</li>
+ * </ul>
+ * Thrust counts in both roles as every stage has a target TWR. Engines
+ * with the same numbers don't dominate each other, so both are kept.
+ * <p>
+ * A sweep only pairs a first stage with an upper stage of higher Isp, so a
+ * first stage engine is only dominated by one of no higher Isp: every upper
+ * stage paired with the dominated engine is then paired with the dominating
+ * one as well. An upper stage of higher Isp is paired with every first stage
+ * the dominated one is, so no such rule is needed there.
+ *
+ * @author Steve Johnson
+ */
+public final class EnginePruning {
+	/**
+	 * The stage an engine is used in.
+	 */
+	public enum Role {
+		/**
+		 * The first stage, lifting the whole rocket off the ground.
+		 */
+		FIRST_STAGE,
+
+		/**
+		 * Any stage above the first.
+		 */
+		UPPER_STAGE
+	}
+
+	/**
+	 * An engine left out of a role, and the engine that beats it.
+	 */
+	public static final class Pruned {
+		private final Engine engine;
+		private final Engine dominatedBy;
+		private final Role role;
+		private final String reason;
+
+		private Pruned(Engine engine, Engine dominatedBy, Role role, String reason) {
+			this.engine = engine;
+			this.dominatedBy = dominatedBy;
+			this.role = role;
+			this.reason = reason;
+		}
+
+		public Engine getEngine() {
+			return engine;
+		}
+
+		public Engine getDominatedBy() {
+			return dominatedBy;
+		}
+
+		public Role getRole() {
+			return role;
+		}
+
+		/**
+		 * @return		the numbers of both engines the role depends on
+		 */
+		public String getReason() {
+			return reason;
+		}
+
+		@Override
+		public String toString() {
+			return engine.getName() + " is dominated by " + dominatedBy.getName() + " (" + reason + ")";
+		}
+	}
+
+	private final PackedEngines packedEngines;
+	private final Map<Role, boolean[]> kept = new EnumMap<Role, boolean[]>(Role.class);
+	private final Map<Role, List<Pruned>> pruned = new EnumMap<Role, List<Pruned>>(Role.class);
+
+	/**
+	 * @param engines		the engines to prune
+	 */
+	public EnginePruning(Engine... engines) {
+		this.packedEngines = new PackedEngines(Arrays.asList(engines));
+		for (Role role : Role.values()) {
+			boolean[] roleKept = new boolean[packedEngines.size()];
+			List<Pruned> rolePruned = new ArrayList<Pruned>();
+			for (int row = 0; row < packedEngines.size(); row++) {
+				int dominator = findDominator(role, row);
+				roleKept[row] = dominator < 0;
+				if (dominator >= 0) {
+					rolePruned.add(new Pruned(packedEngines.getEngine(row), packedEngines.getEngine(dominator), role, describe(role, dominator, row)));
+				}
+			}
+			kept.put(role, roleKept);
+			pruned.put(role, Collections.unmodifiableList(rolePruned));
+		}
+	}
+
+	/**
+	 * @param row		the engine's index, in the order given
+	 * @param role		the role
+	 * @return			whether the engine is kept for the role
+	 */
+	public boolean isKept(int row, Role role) {
+		return kept.get(role)[row];
+	}
+
+	/**
+	 * @param role		the role
+	 * @return			the engines kept for the role, in the order given
+	 */
+	public List<Engine> getEngines(Role role) {
+		List<Engine> engines = new ArrayList<Engine>();
+		for (int row = 0; row < packedEngines.size(); row++) {
+			if (isKept(row, role)) engines.add(packedEngines.getEngine(row));
+		}
+		return engines;
+	}
+
+	/**
+	 * @param role		the role
+	 * @return			the engines left out of the role, in the order given
+	 */
+	public List<Pruned> getPruned(Role role) {
+		return pruned.get(role);
+	}
+
+	/**
+	 * Returns the first engine that dominates an engine in a role.
+	 *
+	 * @param role		the role
+	 * @param row		the engine's row
+	 * @return			the dominating engine's row, or -1 if there's none
+	 */
+	private int findDominator(Role role, int row) {
+		for (int other = 0; other < packedEngines.size(); other++) {
+			if (other != row && dominates(role, other, row)) return other;
+		}
+		return -1;
+	}
+
+	/**
+	 * Whether one engine dominates another in a role.
+	 */
+	private boolean dominates(Role role, int row, int other) {
+		if (packedEngines.getSize(row) != packedEngines.getSize(other)
+				|| packedEngines.getPropellantMask(row) != packedEngines.getPropellantMask(other)) {
+			return false;
+		}
+		if (role == Role.FIRST_STAGE && packedEngines.getIsp(row) > packedEngines.getIsp(other)) {
+			return false;
+		}
+		double[] values = getValues(role, row);
+		double[] otherValues = getValues(role, other);
+		boolean better = false;
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] < otherValues[i]) return false;
+			if (values[i] > otherValues[i]) better = true;
+		}
+		return better;
+	}
+
+	/**
+	 * Returns the numbers of an engine a role depends on, more being better
+	 * for each.
+	 */
+	private double[] getValues(Role role, int row) {
+		double thrust = packedEngines.getThrust(row);
+		double mass = packedEngines.getMass(row);
+		double dryMass = packedEngines.getDryMass(row);
+		double isp = packedEngines.getIsp(row);
+		switch (role) {
+		case FIRST_STAGE:
+			return new double[] {thrust, thrust / mass, isp, -dryMass};
+		default:
+			return new double[] {isp, -mass, -dryMass, thrust};
+		}
+	}
+
+	private String describe(Role role, int dominator, int row) {
+		switch (role) {
+		case FIRST_STAGE:
+			return "thrust " + packedEngines.getThrust(dominator) + " >= " + packedEngines.getThrust(row)
+					+ ", thrust-to-mass " + packedEngines.getThrust(dominator) / packedEngines.getMass(dominator)
+					+ " >= " + packedEngines.getThrust(row) / packedEngines.getMass(row)
+					+ ", Isp " + packedEngines.getIsp(dominator) + " = " + packedEngines.getIsp(row)
+					+ ", dry mass " + packedEngines.getDryMass(dominator) + " <= " + packedEngines.getDryMass(row);
+		default:
+			return "Isp " + packedEngines.getIsp(dominator) + " >= " + packedEngines.getIsp(row)
+					+ ", mass " + packedEngines.getMass(dominator) + " <= " + packedEngines.getMass(row)
+					+ ", dry mass " + packedEngines.getDryMass(dominator) + " <= " + packedEngines.getDryMass(row)
+					+ ", thrust " + packedEngines.getThrust(dominator) + " >= " + packedEngines.getThrust(row);
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder report = new StringBuilder();
+		for (Role role : Role.values()) {
+			List<Pruned> rolePruned = pruned.get(role);
+			report.append(role).append(": ").append(packedEngines.size() - rolePruned.size()).append(" of ")
+					.append(packedEngines.size()).append(" engines kept\n");
+			for (Pruned engine : rolePruned) {
+				report.append("  ").append(engine).append('\n');
+			}
+		}
+		return report.toString();
+	}
+}
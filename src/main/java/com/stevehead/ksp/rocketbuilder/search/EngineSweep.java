@@ -0,0 +1,542 @@
+package com.stevehead.ksp.rocketbuilder.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.stevehead.ksp.rocketbuilder.App;
+import com.stevehead.ksp.rocketbuilder.interfaces.IspContext;
+import com.stevehead.ksp.rocketbuilder.interfaces.Massive;
+import com.stevehead.ksp.rocketbuilder.rocket.Engine;
+import com.stevehead.ksp.rocketbuilder.rocket.PackedEngines;
+import com.stevehead.ksp.rocketbuilder.rocket.Payload;
+import com.stevehead.ksp.rocketbuilder.rocket.ProceduralTank;
+import com.stevehead.ksp.rocketbuilder.rocket.Rocket;
+import com.stevehead.ksp.rocketbuilder.rocket.Stack;
+import com.stevehead.ksp.rocketbuilder.rocket.Stage;
+
+/**
+ * EngineSweep runs a two stage search for every pair of engines where the
+ * second stage has a higher Isp than the first stage. The pairs can be
+ * searched serially or spread over a work pool, and the results are always
+ * returned in the same order as the serial sweep.
+ * <p>
+ * The second stage of a pair doesn't depend on the first stage engine, so
+ * the pairs sharing a second stage engine share its candidates, and they're
+ * dropped once the last of those pairs is done. Engines that perform the
+ * same after scaling are grouped by EngineClasses, and each pair of classes
+ * is searched once. Every pair of their members gets the rocket of the best
+ * design rebuilt with its own engines.
+ * <p>
+ * When only the best pair is wanted, the pairs are searched from the
+ * highest optimistic payload fraction down, and a pair is skipped when its
+ * bound can't beat the best payload fraction any pair has reached so far.
+ *
+ * @author Steve Johnson
+ */
+public class EngineSweep {
+	/**
+	 * The target delta-V in m/s.
+	 */
+	private final double targetDeltaV;
+
+	/**
+	 * The engines to pair up.
+	 */
+	private final Engine[] engines;
+
+	/**
+	 * The TweakScale size the engines are scaled to, in meters.
+	 */
+	private double tweakScale = Double.NaN;
+
+	/**
+	 * The Isp scaler used for every search of the sweep.
+	 */
+	private double ispScaler = Engine.getIspScaler();
+
+	/**
+	 * The mass increments in kg, or NaN for the builder's default.
+	 */
+	private double massIncrements = Double.NaN;
+
+	/**
+	 * The number of stacks in the first stage.
+	 */
+	private int firstStageStackSize = 1;
+
+	/**
+	 * Whether engines dominated in a stage are left out of it.
+	 */
+	private boolean pruneDominated;
+	private EnginePruning pruning;
+
+	/**
+	 * Whether engines that perform the same are searched once.
+	 */
+	private boolean groupEquivalent = true;
+
+	/**
+	 * Whether pairs that can't beat the best pair so far are skipped.
+	 */
+	private boolean bestOnly;
+
+	/**
+	 * @param targetDeltaV		the target delta-V in m/s
+	 * @param engines			the engines to pair up
+	 */
+	public EngineSweep(double targetDeltaV, Engine... engines) {
+		if (engines.length == 0) {
+			throw new IllegalArgumentException("One engine is required at least.");
+		}
+		this.targetDeltaV = targetDeltaV;
+		this.engines = engines;
+	}
+
+	public EngineSweep setTweakScale(double tweakScale) {
+		this.tweakScale = tweakScale;
+		return this;
+	}
+
+	public EngineSweep setIspScaler(double ispScaler) {
+		this.ispScaler = ispScaler;
+		return this;
+	}
+
+	public EngineSweep setMassIncrements(double massIncrements) {
+		this.massIncrements = massIncrements;
+		return this;
+	}
+
+	public EngineSweep setFirstStageStackSize(int firstStageStackSize) {
+		this.firstStageStackSize = firstStageStackSize;
+		return this;
+	}
+
+	/**
+	 * Leaves the engines dominated by another engine out of the stages they
+	 * can't win, as found by EnginePruning.
+	 *
+	 * @param pruneDominated		whether dominated engines are left out
+	 * @return						the sweep
+	 */
+	public EngineSweep setPruneDominated(boolean pruneDominated) {
+		this.pruneDominated = pruneDominated;
+		return this;
+	}
+
+	/**
+	 * Searches a single engine of every class of engines that perform the
+	 * same once scaled, and reports its result for the others, with their
+	 * rockets built from their own engines. On by default.
+	 *
+	 * @param groupEquivalent		whether engines that perform the same are
+	 * 								searched once
+	 * @return						the sweep
+	 */
+	public EngineSweep setGroupEquivalent(boolean groupEquivalent) {
+		this.groupEquivalent = groupEquivalent;
+		return this;
+	}
+
+	/**
+	 * Only searches the pairs that can still beat the best payload fraction
+	 * found so far, by any thread. Each pair's bound comes from the rocket
+	 * equation with its engines' Isp, the tank mass ratio and the TWR
+	 * targets, and the pairs are searched from the highest bound down. The
+	 * pairs left out are reported as skipped.
+	 *
+	 * @param bestOnly				whether pairs that can't win are skipped
+	 * @return						the sweep
+	 */
+	public EngineSweep setBestOnly(boolean bestOnly) {
+		this.bestOnly = bestOnly;
+		return this;
+	}
+
+	/**
+	 * Returns the dominated engines of each stage, whether or not they're
+	 * left out of the sweep.
+	 *
+	 * @return			the pruning of the sweep's engines
+	 */
+	public EnginePruning getPruning() {
+		if (pruning == null) pruning = new EnginePruning(engines);
+		return pruning;
+	}
+
+	/**
+	 * Searches every engine pair on the calling thread.
+	 *
+	 * @return			the best rocket of every pair, in sweep order
+	 */
+	public List<Result> run() {
+		Plan plan = createPlan();
+		SearchResult[] searchResults = new SearchResult[plan.tasks.size()];
+		if (bestOnly) {
+			for (PairTask task : plan.order) {
+				searchResults[task.index] = task.call();
+			}
+			return plan.getResults(searchResults);
+		}
+
+		// The pairs of each second stage engine run back to back, so only
+		// one engine's candidates are held at a time.
+		for (int second = 0; second < engines.length; second++) {
+			for (int i = 0; i < plan.tasks.size(); i++) {
+				if (plan.tasks.get(i).secondStageIndex == second) searchResults[i] = plan.tasks.get(i).call();
+			}
+		}
+		return plan.getResults(searchResults);
+	}
+
+	/**
+	 * Searches every engine pair on a fork/join pool sized to the number of
+	 * available processors.
+	 *
+	 * @return			the best rocket of every pair, in sweep order
+	 */
+	public List<Result> runParallel() {
+		ForkJoinPool pool = new ForkJoinPool();
+		try {
+			return runParallel(pool);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Searches every engine pair on the given executor.
+	 *
+	 * @param executor		the executor to run the searches on
+	 * @return				the best rocket of every pair, in sweep order
+	 */
+	public List<Result> runParallel(ExecutorService executor) {
+		Plan plan = createPlan();
+		SearchResult[] searchResults = new SearchResult[plan.tasks.size()];
+		try {
+			List<Future<SearchResult>> futures = executor.invokeAll(plan.order);
+			for (int i = 0; i < futures.size(); i++) {
+				searchResults[plan.order.get(i).index] = futures.get(i).get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("The engine sweep was interrupted.", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+			if (cause instanceof Error) throw (Error) cause;
+			throw new IllegalStateException(cause);
+		}
+		return plan.getResults(searchResults);
+	}
+
+	/**
+	 * Lists every engine pair in sweep order, and creates a task for each
+	 * pair of engine classes.
+	 *
+	 * @return				the plan
+	 */
+	private Plan createPlan() {
+		Plan plan = new Plan();
+		Incumbent incumbent = bestOnly ? new Incumbent() : null;
+		PackedEngines packedEngines = new PackedEngines(Arrays.asList(engines));
+		Engine[] scaledEngines = new Engine[engines.length];
+		for (int i = 0; i < engines.length; i++) {
+			scaledEngines[i] = scale(engines[i]);
+		}
+		EngineClasses classes = groupEquivalent ? new EngineClasses(scaledEngines) : null;
+		SharedUpperStage[] upperStages = new SharedUpperStage[engines.length];
+		int[][] classTasks = new int[engines.length][engines.length];
+		for (int[] row : classTasks) {
+			Arrays.fill(row, -1);
+		}
+
+		EnginePruning pruning = pruneDominated ? getPruning() : null;
+		for (int first = 0; first < packedEngines.size(); first++) {
+			if (pruning != null && !pruning.isKept(first, EnginePruning.Role.FIRST_STAGE)) continue;
+			double firstStageIsp = packedEngines.getIsp(first);
+			for (int second = 0; second < packedEngines.size(); second++) {
+				if (packedEngines.getIsp(second) <= firstStageIsp) continue;
+				if (pruning != null && !pruning.isKept(second, EnginePruning.Role.UPPER_STAGE)) continue;
+
+				int firstClass = classes == null ? first : classes.getRepresentative(first);
+				int secondClass = classes == null ? second : classes.getRepresentative(second);
+				if (classTasks[firstClass][secondClass] < 0) {
+					if (upperStages[secondClass] == null) {
+						upperStages[secondClass] = new SharedUpperStage(new UpperStageCandidates(scaledEngines[secondClass]));
+					}
+					upperStages[secondClass].pairs.incrementAndGet();
+					classTasks[firstClass][secondClass] = plan.tasks.size();
+					plan.tasks.add(new PairTask(plan.tasks.size(), scaledEngines[firstClass], secondClass, upperStages[secondClass], incumbent));
+				}
+				plan.addPair(engines[first], engines[second], scaledEngines[first], scaledEngines[second],
+						classTasks[firstClass][secondClass]);
+			}
+		}
+
+		plan.order.addAll(plan.tasks);
+		if (bestOnly) {
+			for (PairTask task : plan.tasks) {
+				task.bound = task.createBuilder().getPayloadFractionBound();
+			}
+			Collections.sort(plan.order, new Comparator<PairTask>() {
+				@Override
+				public int compare(PairTask task1, PairTask task2) {
+					return Double.compare(task2.bound, task1.bound);
+				}
+			});
+		}
+		return plan;
+	}
+
+	/**
+	 * Scales an engine to the sweep's TweakScale size, if one is set.
+	 *
+	 * @param engine		the engine
+	 * @return				the scaled engine
+	 */
+	private Engine scale(Engine engine) {
+		return Double.isNaN(tweakScale) ? engine : engine.tweakScale(tweakScale);
+	}
+
+	/**
+	 * The candidates of a second stage engine, and the number of its pairs
+	 * still to be searched.
+	 */
+	private static class SharedUpperStage {
+		private final UpperStageCandidates candidates;
+		private final AtomicInteger pairs = new AtomicInteger();
+
+		private SharedUpperStage(UpperStageCandidates candidates) {
+			this.candidates = candidates;
+		}
+
+		/**
+		 * Counts a pair as done, and drops the candidates after the last one.
+		 */
+		private void release() {
+			if (pairs.decrementAndGet() == 0) candidates.clear();
+		}
+	}
+
+	/**
+	 * The engine pairs of a sweep in sweep order, and the task searching
+	 * each of them.
+	 */
+	private class Plan {
+		private final List<PairTask> tasks = new ArrayList<PairTask>();
+		private final List<PairTask> order = new ArrayList<PairTask>();
+		private final List<Engine> firstStageEngines = new ArrayList<Engine>();
+		private final List<Engine> secondStageEngines = new ArrayList<Engine>();
+		private final List<Engine[]> scaledPairs = new ArrayList<Engine[]>();
+		private final List<Integer> pairTasks = new ArrayList<Integer>();
+
+		private void addPair(Engine firstStageEngine, Engine secondStageEngine, Engine scaledFirstStageEngine,
+				Engine scaledSecondStageEngine, int task) {
+			firstStageEngines.add(firstStageEngine);
+			secondStageEngines.add(secondStageEngine);
+			scaledPairs.add(new Engine[] {scaledFirstStageEngine, scaledSecondStageEngine});
+			pairTasks.add(task);
+		}
+
+		/**
+		 * @param searchResults		the result of each task
+		 * @return					the result of each pair, in sweep order
+		 */
+		private List<Result> getResults(SearchResult[] searchResults) {
+			List<Result> results = new ArrayList<Result>(pairTasks.size());
+			for (int i = 0; i < pairTasks.size(); i++) {
+				PairTask task = tasks.get(pairTasks.get(i));
+				SearchResult searchResult = searchResults[pairTasks.get(i)];
+				Engine[] scaledPair = scaledPairs.get(i);
+				if (searchResult == null) {
+					results.add(new Result(firstStageEngines.get(i), secondStageEngines.get(i), null, Double.NaN, Double.NaN, null, true));
+				} else if (searchResult.getRocket() == null || (scaledPair[0] == task.firstStageEngine
+						&& scaledPair[1] == task.upperStage.candidates.getEngine())) {
+					results.add(new Result(firstStageEngines.get(i), secondStageEngines.get(i), searchResult));
+				} else {
+					Rocket rocket = buildRocket(searchResult, scaledPair);
+					results.add(new Result(firstStageEngines.get(i), secondStageEngines.get(i), rocket, searchResult.getPayloadMass(),
+							searchResult.getPayloadFraction(), searchResult.getStats(), false));
+				}
+			}
+			return results;
+		}
+
+		/**
+		 * Builds the best design of a class pair's search with the engines of
+		 * one of its member pairs. They perform the same, so the rocket does
+		 * too.
+		 *
+		 * @param searchResult		the result of the class pair's search
+		 * @param scaledPair		the scaled first and second stage engines
+		 * @return					the rocket
+		 */
+		private Rocket buildRocket(SearchResult searchResult, Engine[] scaledPair) {
+			double[] tankMasses = searchResult.getTankMasses();
+			Rocket.Builder rocketBuilder = new Rocket.Builder().setIspContext(new IspContext(ispScaler));
+			Massive payload = new Payload(searchResult.getPayloadMass());
+			for (int i = scaledPair.length - 1; i >= 0; i--) {
+				ProceduralTank tank = new ProceduralTank(tankMasses[i], scaledPair[i].getPropellants());
+				Stage stage = new Stage(payload, new Stack(tank, scaledPair[i]), i == 0 ? firstStageStackSize : 1);
+				rocketBuilder.addStage(stage);
+				payload = stage;
+			}
+			return rocketBuilder.build();
+		}
+	}
+
+	/**
+	 * The search of a single pair of engine classes.
+	 */
+	private class PairTask implements Callable<SearchResult> {
+		private final int index;
+		private final Engine firstStageEngine;
+		private final int secondStageIndex;
+		private final SharedUpperStage upperStage;
+		private final Incumbent incumbent;
+
+		/**
+		 * The optimistic payload fraction of the pair in percent.
+		 */
+		private double bound = Double.POSITIVE_INFINITY;
+
+		/**
+		 * @param index					the index of the task
+		 * @param firstStageEngine		the scaled first stage engine
+		 * @param secondStageIndex		the index of the second stage engine
+		 * @param upperStage			the candidates of the second stage
+		 * @param incumbent				the best payload fraction of the sweep,
+		 * 								or null if every pair is searched
+		 */
+		private PairTask(int index, Engine firstStageEngine, int secondStageIndex, SharedUpperStage upperStage, Incumbent incumbent) {
+			this.index = index;
+			this.firstStageEngine = firstStageEngine;
+			this.secondStageIndex = secondStageIndex;
+			this.upperStage = upperStage;
+			this.incumbent = incumbent;
+		}
+
+		private App.Builder createBuilder() {
+			App.Builder builder = new App.Builder(targetDeltaV, firstStageEngine, upperStage.candidates.getEngine());
+			builder.setIspScaler(ispScaler);
+			if (!Double.isNaN(massIncrements)) builder.setMassIncrements(massIncrements);
+			builder.setFirstStageStackSize(firstStageStackSize);
+			builder.setUpperStageCandidates(upperStage.candidates);
+			builder.setLogOutput(false);
+			return builder;
+		}
+
+		/**
+		 * @return		the result of the search, or null if it was skipped
+		 */
+		@Override
+		public SearchResult call() {
+			try {
+				if (incumbent != null && bound <= incumbent.get()) return null;
+				SearchResult result = createBuilder().search();
+				if (incumbent != null && result.getRocket() != null) incumbent.offer(result.getPayloadFraction());
+				return result;
+			} finally {
+				upperStage.release();
+			}
+		}
+	}
+
+	/**
+	 * The best rocket found for one engine pair.
+	 *
+	 * @author Steve Johnson
+	 */
+	public static class Result {
+		private final Engine firstStageEngine;
+		private final Engine secondStageEngine;
+		private final Rocket rocket;
+		private final double payloadMass;
+		private final double payloadFraction;
+		private final SearchStats stats;
+		private final boolean skipped;
+
+		/**
+		 * @param firstStageEngine		the first stage engine
+		 * @param secondStageEngine		the second stage engine
+		 * @param rocket				the best rocket, or null if none was found
+		 */
+		public Result(Engine firstStageEngine, Engine secondStageEngine, Rocket rocket) {
+			this(firstStageEngine, secondStageEngine, rocket, Double.NaN, Double.NaN, null, false);
+		}
+
+		/**
+		 * @param firstStageEngine		the first stage engine
+		 * @param secondStageEngine		the second stage engine
+		 * @param searchResult			the result of the pair's search
+		 */
+		public Result(Engine firstStageEngine, Engine secondStageEngine, SearchResult searchResult) {
+			this(firstStageEngine, secondStageEngine, searchResult.getRocket(), searchResult.getPayloadMass(),
+					searchResult.getPayloadFraction(), searchResult.getStats(), false);
+		}
+
+		private Result(Engine firstStageEngine, Engine secondStageEngine, Rocket rocket, double payloadMass,
+				double payloadFraction, SearchStats stats, boolean skipped) {
+			this.firstStageEngine = firstStageEngine;
+			this.secondStageEngine = secondStageEngine;
+			this.rocket = rocket;
+			this.payloadMass = payloadMass;
+			this.payloadFraction = payloadFraction;
+			this.stats = stats;
+			this.skipped = skipped;
+		}
+
+		public Engine getFirstStageEngine() {
+			return firstStageEngine;
+		}
+
+		public Engine getSecondStageEngine() {
+			return secondStageEngine;
+		}
+
+		public Rocket getRocket() {
+			return rocket;
+		}
+
+		/**
+		 * @return		the payload mass of the best rocket in kg, or NaN if
+		 * 				none was found or it isn't known
+		 */
+		public double getPayloadMass() {
+			return payloadMass;
+		}
+
+		/**
+		 * @return		the payload fraction of the best rocket in percent, or
+		 * 				NaN if none was found or it isn't known
+		 */
+		public double getPayloadFraction() {
+			return payloadFraction;
+		}
+
+		/**
+		 * @return		the statistics of the pair's search, or null if unknown
+		 */
+		public SearchStats getStats() {
+			return stats;
+		}
+
+		/**
+		 * @return		whether the pair wasn't searched, as it couldn't beat
+		 * 				the best pair
+		 */
+		public boolean isSkipped() {
+			return skipped;
+		}
+	}
+}
@@ -0,0 +1,35 @@
+package com.stevehead.ksp.rocketbuilder.search;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Incumbent is the best payload fraction found so far by any search of a
+ * sweep, shared between threads without locking. The fraction is kept as
+ * the bits of a double in an AtomicLong and only ever raised.
+ *
+ * @author Steve Johnson
+ */
+final class Incumbent {
+	private final AtomicLong bits = new AtomicLong(Double.doubleToLongBits(0));
+
+	/**
+	 * @return		the best payload fraction so far in percent
+	 */
+	double get() {
+		return Double.longBitsToDouble(bits.get());
+	}
+
+	/**
+	 * Raises the best payload fraction, if the new one is higher.
+	 *
+	 * @param payloadFraction		the payload fraction in percent
+	 * @return						whether it's the new best
+	 */
+	boolean offer(double payloadFraction) {
+		while (true) {
+			long current = bits.get();
+			if (!(payloadFraction > Double.longBitsToDouble(current))) return false;
+			if (bits.compareAndSet(current, Double.doubleToLongBits(payloadFraction))) return true;
+		}
+	}
+}
@@ -0,0 +1,180 @@
+package com.stevehead.ksp.rocketbuilder.search;
+
+import java.util.Arrays;
+
+/**
+ * ParetoArchive keeps the designs of a payload that no other design beats
+ * on payload fraction, delta-V and starting TWR all at once, more being
+ * better for each. It uses epsilon-dominance to bound its size: every
+ * objective is cut into boxes of its epsilon, a design is only kept if no
+ * kept design's box dominates its box, and each box holds one design at
+ * most. A box keeps its first design unless a later one dominates it
+ * outright.
+ * <p>
+ * The designs are held in primitive arrays that grow as needed, with the
+ * last design moved into the place of a dropped one.
+ *
+ * @author Steve Johnson
+ */
+final class ParetoArchive {
+	private static final int INITIAL_CAPACITY = 16;
+
+	private final int stages;
+	private final double payloadFractionEpsilon;
+	private final double deltaVEpsilon;
+	private final double twrEpsilon;
+
+	/**
+	 * The objectives, boxes and tank masses of each design.
+	 */
+	private double[] payloadFractions;
+	private double[] deltaVs;
+	private double[] twrs;
+	private long[] boxes;
+	private double[] tankMasses;
+	private int size;
+
+	/**
+	 * @param stages					the number of stages of every design
+	 * @param payloadFractionEpsilon	the box size of the payload fraction in percent
+	 * @param deltaVEpsilon				the box size of the delta-V in m/s
+	 * @param twrEpsilon				the box size of the starting TWR
+	 */
+	ParetoArchive(int stages, double payloadFractionEpsilon, double deltaVEpsilon, double twrEpsilon) {
+		if (!(payloadFractionEpsilon > 0 && deltaVEpsilon > 0 && twrEpsilon > 0)) {
+			throw new IllegalArgumentException("The Pareto epsilons must be positive.");
+		}
+		this.stages = stages;
+		this.payloadFractionEpsilon = payloadFractionEpsilon;
+		this.deltaVEpsilon = deltaVEpsilon;
+		this.twrEpsilon = twrEpsilon;
+		this.payloadFractions = new double[INITIAL_CAPACITY];
+		this.deltaVs = new double[INITIAL_CAPACITY];
+		this.twrs = new double[INITIAL_CAPACITY];
+		this.boxes = new long[3 * INITIAL_CAPACITY];
+		this.tankMasses = new double[stages * INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Drops every design.
+	 */
+	void clear() {
+		size = 0;
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Keeps a design if no kept design epsilon-dominates it, and drops the
+	 * kept designs it epsilon-dominates.
+	 *
+	 * @param payloadFraction	the payload fraction in percent
+	 * @param deltaV			the total delta-V in m/s
+	 * @param twr				the starting TWR
+	 * @param designTankMasses	the tank mass of each stack, first stage first
+	 * @return					whether the design was kept
+	 */
+	boolean offer(double payloadFraction, double deltaV, double twr, double[] designTankMasses) {
+		long fractionBox = (long) Math.floor(payloadFraction / payloadFractionEpsilon);
+		long deltaVBox = (long) Math.floor(deltaV / deltaVEpsilon);
+		long twrBox = (long) Math.floor(twr / twrEpsilon);
+
+		for (int i = 0; i < size; i++) {
+			int comparison = compare(boxes[3 * i], boxes[3 * i + 1], boxes[3 * i + 2], fractionBox, deltaVBox, twrBox);
+			if (comparison == 0) {
+				if (!dominates(payloadFraction, deltaV, twr, payloadFractions[i], deltaVs[i], twrs[i])) return false;
+				store(i, payloadFraction, deltaV, twr, fractionBox, deltaVBox, twrBox, designTankMasses);
+				return true;
+			}
+			if (comparison > 0) return false;
+		}
+
+		// No kept box dominates the new one, so drop the ones it dominates.
+		int i = 0;
+		while (i < size) {
+			if (compare(fractionBox, deltaVBox, twrBox, boxes[3 * i], boxes[3 * i + 1], boxes[3 * i + 2]) > 0) {
+				size--;
+				move(size, i);
+			} else {
+				i++;
+			}
+		}
+
+		if (size == payloadFractions.length) grow();
+		store(size++, payloadFraction, deltaV, twr, fractionBox, deltaVBox, twrBox, designTankMasses);
+		return true;
+	}
+
+	double getPayloadFraction(int index) {
+		return payloadFractions[index];
+	}
+
+	double getDeltaV(int index) {
+		return deltaVs[index];
+	}
+
+	double getTWR(int index) {
+		return twrs[index];
+	}
+
+	/**
+	 * @param index		the design index
+	 * @return			the tank mass of each stack, first stage first
+	 */
+	double[] getTankMasses(int index) {
+		double[] masses = new double[stages];
+		System.arraycopy(tankMasses, index * stages, masses, 0, stages);
+		return masses;
+	}
+
+	/**
+	 * Compares two boxes.
+	 *
+	 * @return		0 if they're the same box, 1 if the first dominates the
+	 * 				second, -1 otherwise
+	 */
+	private static int compare(long fraction1, long deltaV1, long twr1, long fraction2, long deltaV2, long twr2) {
+		if (fraction1 == fraction2 && deltaV1 == deltaV2 && twr1 == twr2) return 0;
+		return fraction1 >= fraction2 && deltaV1 >= deltaV2 && twr1 >= twr2 ? 1 : -1;
+	}
+
+	/**
+	 * Whether the first design is no worse than the second on every
+	 * objective and better on one.
+	 */
+	private static boolean dominates(double fraction1, double deltaV1, double twr1, double fraction2, double deltaV2, double twr2) {
+		return fraction1 >= fraction2 && deltaV1 >= deltaV2 && twr1 >= twr2
+				&& (fraction1 > fraction2 || deltaV1 > deltaV2 || twr1 > twr2);
+	}
+
+	private void store(int index, double payloadFraction, double deltaV, double twr,
+			long fractionBox, long deltaVBox, long twrBox, double[] designTankMasses) {
+		payloadFractions[index] = payloadFraction;
+		deltaVs[index] = deltaV;
+		twrs[index] = twr;
+		boxes[3 * index] = fractionBox;
+		boxes[3 * index + 1] = deltaVBox;
+		boxes[3 * index + 2] = twrBox;
+		System.arraycopy(designTankMasses, 0, tankMasses, index * stages, stages);
+	}
+
+	private void move(int from, int to) {
+		if (from == to) return;
+		payloadFractions[to] = payloadFractions[from];
+		deltaVs[to] = deltaVs[from];
+		twrs[to] = twrs[from];
+		System.arraycopy(boxes, 3 * from, boxes, 3 * to, 3);
+		System.arraycopy(tankMasses, from * stages, tankMasses, to * stages, stages);
+	}
+
+	private void grow() {
+		int capacity = 2 * payloadFractions.length;
+		payloadFractions = Arrays.copyOf(payloadFractions, capacity);
+		deltaVs = Arrays.copyOf(deltaVs, capacity);
+		twrs = Arrays.copyOf(twrs, capacity);
+		boxes = Arrays.copyOf(boxes, 3 * capacity);
+		tankMasses = Arrays.copyOf(tankMasses, stages * capacity);
+	}
+}
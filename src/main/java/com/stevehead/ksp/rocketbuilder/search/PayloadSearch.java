@@ -0,0 +1,26 @@
+package com.stevehead.ksp.rocketbuilder.search;
+
+/**
+ * PayloadSearch is how the heaviest payload that still reaches the target
+ * delta-V is found.
+ *
+ * @author Steve Johnson
+ */
+public enum PayloadSearch {
+	/**
+	 * Steps the payload down from the maximum one grid step at a time, with a
+	 * full search at every step.
+	 */
+	LINEAR,
+
+	/**
+	 * Gallops down from the maximum payload and then bisects, only checking
+	 * whether any design exists at each payload tried. The full search runs
+	 * once, at the payload found. This assumes a lighter payload is never
+	 * harder to lift, which always holds for one and two stages. Above that
+	 * the rule that a middle stage has at least the TWR of the stage above
+	 * can in rare cases break it, so searches of more stages fall back to
+	 * LINEAR.
+	 */
+	BISECTION;
+}
@@ -0,0 +1,43 @@
+package com.stevehead.ksp.rocketbuilder.search;
+
+import java.io.PrintStream;
+
+import com.stevehead.ksp.rocketbuilder.search.SearchStats.Improvement;
+
+/**
+ * PrintStreamListener prints every improvement as the payload, the tank
+ * masses from the first stage up, the delta-V and the payload fraction.
+ *
+ * @author Steve Johnson
+ */
+public class PrintStreamListener implements SearchListener {
+	private final PrintStream out;
+
+	/**
+	 * @param out		the stream to print to
+	 */
+	public PrintStreamListener(PrintStream out) {
+		this.out = out;
+	}
+
+	@Override
+	public void onImprovement(Improvement improvement) {
+		out.println(describe(improvement));
+	}
+
+	/**
+	 * Describes an improvement, e.g. "1500.0, 4050.0, 900.0: 3802.1, 8.2%".
+	 *
+	 * @param improvement		the improvement
+	 * @return					the description
+	 */
+	public static String describe(Improvement improvement) {
+		StringBuilder output = new StringBuilder();
+		output.append(improvement.getPayloadMass());
+		for (double tankMass : improvement.getTankMasses()) {
+			output.append(", ").append(tankMass);
+		}
+		output.append(": ").append(improvement.getDeltaV()).append(", ").append(improvement.getPayloadFraction()).append("%");
+		return output.toString();
+	}
+}
@@ -0,0 +1,28 @@
+package com.stevehead.ksp.rocketbuilder.search;
+
+import com.stevehead.ksp.rocketbuilder.search.SearchStats.Improvement;
+
+/**
+ * SearchListener is told about every improvement on the best design while a
+ * search runs. It's called on the search thread, so anything slow, such as
+ * console output, belongs behind an AsyncSearchListener.
+ *
+ * @author Steve Johnson
+ */
+public interface SearchListener {
+	/**
+	 * The listener that ignores every event.
+	 */
+	SearchListener NONE = new SearchListener() {
+		@Override
+		public void onImprovement(Improvement improvement) {
+		}
+	};
+
+	/**
+	 * Called when a design beats the best design of its payload.
+	 *
+	 * @param improvement		the new best design
+	 */
+	void onImprovement(Improvement improvement);
+}
@@ -0,0 +1,85 @@
+package com.stevehead.ksp.rocketbuilder.search;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.stevehead.ksp.rocketbuilder.rocket.Rocket;
+
+/**
+ * SearchResult is the best rockets of a search along with the statistics of
+ * how they were found.
+ *
+ * @author Steve Johnson
+ */
+public final class SearchResult {
+	private final Rocket rocket;
+	private final double payloadMass;
+	private final double payloadFraction;
+	private final double[] tankMasses;
+	private final List<Rocket> rockets;
+	private final List<Rocket> paretoFront;
+	private final SearchStats stats;
+
+	SearchResult(Rocket rocket, double payloadMass, double payloadFraction, double[] tankMasses, List<Rocket> rockets,
+			List<Rocket> paretoFront, SearchStats stats) {
+		this.rocket = rocket;
+		this.payloadMass = payloadMass;
+		this.payloadFraction = payloadFraction;
+		this.tankMasses = tankMasses;
+		this.rockets = Collections.unmodifiableList(rockets);
+		this.paretoFront = Collections.unmodifiableList(paretoFront);
+		this.stats = stats;
+	}
+
+	/**
+	 * @return		the best rocket, or null if none was found
+	 */
+	public Rocket getRocket() {
+		return rocket;
+	}
+
+	/**
+	 * @return		the payload mass of the best rocket in kg, or NaN if none
+	 * 				was found
+	 */
+	public double getPayloadMass() {
+		return payloadMass;
+	}
+
+	/**
+	 * @return		the payload fraction of the best rocket in percent, or NaN
+	 * 				if none was found
+	 */
+	public double getPayloadFraction() {
+		return payloadFraction;
+	}
+
+	/**
+	 * @return		the tank mass of each stack of the best rocket in kg, the
+	 * 				first stage first, or null if none was found
+	 */
+	public double[] getTankMasses() {
+		return tankMasses == null ? null : tankMasses.clone();
+	}
+
+	/**
+	 * @return		the designs kept by the search, the best first, all at
+	 * 				the best rocket's payload
+	 */
+	public List<Rocket> getRockets() {
+		return rockets;
+	}
+
+	/**
+	 * @return		the Pareto front of payload fraction, delta-V and starting
+	 * 				TWR at the best rocket's payload, the highest payload
+	 * 				fraction first, or nothing if it wasn't kept
+	 */
+	public List<Rocket> getParetoFront() {
+		return paretoFront;
+	}
+
+	public SearchStats getStats() {
+		return stats;
+	}
+}
@@ -0,0 +1,310 @@
+package com.stevehead.ksp.rocketbuilder.search;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * SearchStats counts what a staged search did: the candidates checked at
+ * every loop level, why they were turned down, each improvement on the best
+ * design, and the time it all took. The loop levels are the stage indices,
+ * the first stage being 0.
+ *
+ * @author Steve Johnson
+ */
+public final class SearchStats {
+	/**
+	 * Why a candidate was turned down.
+	 * <p>
+	 * The searches solve for the tanks within a stage's TWR and tank size
+	 * ratio limits before walking it, and never try the tanks outside them,
+	 * so those are counted neither as candidates nor as rejections. The TWR
+	 * and tank size ratio rejections only count the tanks a search tries
+	 * anyway, such as a stage the line search finds no tank at all for, and
+	 * stay at 0 for the exhaustive walk.
+	 */
+	public enum Rejection {
+		/**
+		 * The stage's starting TWR is below its target TWR.
+		 */
+		BELOW_TARGET_TWR,
+
+		/**
+		 * The stage's starting TWR is below the TWR of the stage above.
+		 */
+		BELOW_UPPER_TWR,
+
+		/**
+		 * The upper tank is outside the allowed ratio of the stage's tank.
+		 */
+		OUTSIDE_TANK_SIZE_RATIO,
+
+		/**
+		 * The complete design doesn't reach the target delta-V.
+		 */
+		BELOW_TARGET_DELTA_V,
+
+		/**
+		 * Branch and bound found the stages beneath can't beat the best
+		 * design so far.
+		 */
+		BOUND
+	}
+
+	/**
+	 * A design that beat the best design of its payload.
+	 */
+	public static final class Improvement {
+		private final double payloadMass;
+		private final double[] tankMasses;
+		private final double deltaV;
+		private final double payloadFraction;
+		private final long candidates;
+
+		private Improvement(double payloadMass, double[] tankMasses, double deltaV, double payloadFraction, long candidates) {
+			this.payloadMass = payloadMass;
+			this.tankMasses = tankMasses;
+			this.deltaV = deltaV;
+			this.payloadFraction = payloadFraction;
+			this.candidates = candidates;
+		}
+
+		public double getPayloadMass() {
+			return payloadMass;
+		}
+
+		/**
+		 * @return		the tank mass of each stack, first stage first
+		 */
+		public double[] getTankMasses() {
+			return tankMasses.clone();
+		}
+
+		public double getDeltaV() {
+			return deltaV;
+		}
+
+		/**
+		 * @return		the payload fraction in percent
+		 */
+		public double getPayloadFraction() {
+			return payloadFraction;
+		}
+
+		/**
+		 * @return		the candidates checked up to this improvement
+		 */
+		public long getCandidates() {
+			return candidates;
+		}
+
+		@Override
+		public String toString() {
+			return payloadMass + ", " + Arrays.toString(tankMasses) + ": " + deltaV + ", " + payloadFraction + "% after " + candidates + " candidates";
+		}
+	}
+
+	private static final ThreadMXBean THREAD_BEAN = ManagementFactory.getThreadMXBean();
+
+	private final long[] candidates;
+	private final long[] accepted;
+	private final long[][] rejections;
+	private final long[] stageTimes;
+	private final List<Improvement> improvements = new ArrayList<Improvement>();
+	private long designs;
+	private long payloads;
+	private long probes;
+	private long totalCandidates;
+
+	private long wallStart;
+	private long cpuStart;
+	private long wallTime;
+	private long cpuTime = -1;
+
+	/**
+	 * @param stages		the number of stages searched
+	 * @param stageTiming	whether the time of each stage is measured
+	 */
+	SearchStats(int stages, boolean stageTiming) {
+		this.candidates = new long[stages];
+		this.accepted = new long[stages];
+		this.rejections = new long[stages][Rejection.values().length];
+		this.stageTimes = stageTiming ? new long[stages] : null;
+	}
+
+	void start() {
+		wallStart = System.nanoTime();
+		cpuStart = getThreadCpuTime();
+	}
+
+	void stop() {
+		wallTime = System.nanoTime() - wallStart;
+		if (cpuStart >= 0) cpuTime = getThreadCpuTime() - cpuStart;
+	}
+
+	void countCandidate(int stage) {
+		candidates[stage]++;
+		totalCandidates++;
+	}
+
+	void countAccepted(int stage) {
+		accepted[stage]++;
+	}
+
+	void countRejection(int stage, Rejection rejection) {
+		rejections[stage][rejection.ordinal()]++;
+	}
+
+	void addStageTime(int stage, long time) {
+		stageTimes[stage] += time;
+	}
+
+	void countDesign() {
+		designs++;
+	}
+
+	void countPayload() {
+		payloads++;
+	}
+
+	void countProbe() {
+		probes++;
+	}
+
+	Improvement addImprovement(double payloadMass, double[] tankMasses, double deltaV, double payloadFraction) {
+		Improvement improvement = new Improvement(payloadMass, tankMasses.clone(), deltaV, payloadFraction, totalCandidates);
+		improvements.add(improvement);
+		return improvement;
+	}
+
+	/**
+	 * @return		the number of loop levels, one per stage
+	 */
+	public int getStages() {
+		return candidates.length;
+	}
+
+	/**
+	 * @param stage		the stage index
+	 * @return			the tank masses checked for the stage
+	 */
+	public long getCandidates(int stage) {
+		return candidates[stage];
+	}
+
+	/**
+	 * @return			the tank masses checked over all stages
+	 */
+	public long getCandidates() {
+		return totalCandidates;
+	}
+
+	/**
+	 * @param stage		the stage index
+	 * @return			the tank masses that passed the stage's checks
+	 */
+	public long getAccepted(int stage) {
+		return accepted[stage];
+	}
+
+	/**
+	 * @param stage			the stage index
+	 * @param rejection		the reason
+	 * @return				the candidates of the stage turned down for the reason
+	 */
+	public long getRejections(int stage, Rejection rejection) {
+		return rejections[stage][rejection.ordinal()];
+	}
+
+	/**
+	 * @param rejection		the reason
+	 * @return				the candidates of all stages turned down for the reason
+	 */
+	public long getRejections(Rejection rejection) {
+		long count = 0;
+		for (long[] stageRejections : rejections) {
+			count += stageRejections[rejection.ordinal()];
+		}
+		return count;
+	}
+
+	/**
+	 * @return		the complete designs evaluated
+	 */
+	public long getDesigns() {
+		return designs;
+	}
+
+	/**
+	 * @return		the payloads fully searched
+	 */
+	public long getPayloads() {
+		return payloads;
+	}
+
+	/**
+	 * @return		the payloads only checked for any design, by bisection
+	 */
+	public long getProbes() {
+		return probes;
+	}
+
+	/**
+	 * @return		every improvement on the best design, in order
+	 */
+	public List<Improvement> getImprovements() {
+		return Collections.unmodifiableList(improvements);
+	}
+
+	/**
+	 * @param stage		the stage index
+	 * @return			the wall clock time spent walking the stage in
+	 * 					nanoseconds, the stages beneath it included, or -1
+	 * 					if the stages weren't timed
+	 */
+	public long getStageTime(int stage) {
+		return stageTimes == null ? -1 : stageTimes[stage];
+	}
+
+	/**
+	 * @return		the wall clock time of the search in nanoseconds
+	 */
+	public long getWallTime() {
+		return wallTime;
+	}
+
+	/**
+	 * @return		the CPU time of the search in nanoseconds, or -1 if the JVM
+	 * 				doesn't measure thread CPU time
+	 */
+	public long getCpuTime() {
+		return cpuTime;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder output = new StringBuilder();
+		output.append(payloads).append(" payloads, ").append(probes).append(" probes, ")
+				.append(totalCandidates).append(" candidates, ").append(designs).append(" designs, ")
+				.append(improvements.size()).append(" improvements in ")
+				.append(wallTime / 1000000.0).append(" ms (")
+				.append(cpuTime < 0 ? "n/a" : String.valueOf(cpuTime / 1000000.0)).append(" ms CPU)");
+		for (int i = 0; i < candidates.length; i++) {
+			output.append("\n  stage ").append(i).append(": ")
+					.append(candidates[i]).append(" candidates, ").append(accepted[i]).append(" accepted");
+			for (Rejection rejection : Rejection.values()) {
+				long count = rejections[i][rejection.ordinal()];
+				if (count > 0) output.append(", ").append(count).append(" ").append(rejection);
+			}
+			if (stageTimes != null) output.append(" in ").append(stageTimes[i] / 1000000.0).append(" ms");
+		}
+		return output.toString();
+	}
+
+	private static long getThreadCpuTime() {
+		return THREAD_BEAN.isCurrentThreadCpuTimeSupported() ? THREAD_BEAN.getCurrentThreadCpuTime() : -1;
+	}
+}
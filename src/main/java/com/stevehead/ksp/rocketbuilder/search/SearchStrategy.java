@@ -0,0 +1,51 @@
+package com.stevehead.ksp.rocketbuilder.search;
+
+/**
+ * SearchStrategy is how the tank masses of a payload are searched.
+ *
+ * @author Steve Johnson
+ */
+public enum SearchStrategy {
+	/**
+	 * Walks every tank mass on the grid.
+	 */
+	EXHAUSTIVE,
+
+	/**
+	 * Walks the tank masses on the grid, but skips any stage whose optimistic
+	 * payload fraction can't beat the best design so far. Returns the same
+	 * design as the exhaustive walk.
+	 */
+	BRANCH_AND_BOUND,
+
+	/**
+	 * Solves the continuous optimal staging problem and only checks the grid
+	 * around its solution.
+	 */
+	ANALYTIC,
+
+	/**
+	 * Walks a coarse grid, then walks the grid around its best designs at
+	 * finer steps, level by level, down to the mass increments. Finds the
+	 * exhaustive payload as long as it stays near the best coarse designs,
+	 * and walks a payload in full if the finer steps lose every design, so
+	 * it always finds a rocket when the exhaustive walk does. Otherwise it
+	 * may settle on a lighter payload with a lower payload fraction; on the
+	 * tested engine sets, the payload fraction is within 1% of the
+	 * exhaustive one. Of the designs it walks with the same payload
+	 * fraction, keeps the one the exhaustive walk would.
+	 */
+	MULTI_RESOLUTION,
+
+	/**
+	 * Bisects the first stage's tank mass for the lightest one reaching the
+	 * target delta-V, and ternary searches the tank mass of every stage above
+	 * it. A heuristic: the ternary search assumes the payload fraction is
+	 * unimodal in each stage's tank mass, and misses the best design where
+	 * it isn't. Only where two probes tie, such as when neither reaches the
+	 * target delta-V, is the rest of a stage's range scanned on the grid. Of
+	 * the designs it finds with the same payload fraction, keeps the one the
+	 * exhaustive walk would.
+	 */
+	LINE_SEARCH;
+}
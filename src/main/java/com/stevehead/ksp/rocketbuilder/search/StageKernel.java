@@ -0,0 +1,192 @@
+package com.stevehead.ksp.rocketbuilder.search;
+
+import com.stevehead.ksp.rocketbuilder.interfaces.IspContext;
+import com.stevehead.ksp.rocketbuilder.interfaces.Thrustable;
+import com.stevehead.ksp.rocketbuilder.rocket.PackedEngines;
+import com.stevehead.ksp.rocketbuilder.rocket.ProceduralTank;
+
+/**
+ * StageKernel evaluates a stage made of procedural tank and engine stacks
+ * from primitive doubles, without creating any tank, stack or stage objects.
+ * The arithmetic follows the same order as the Stack, StackGroup and Stage
+ * constructors, so its results are identical to the object model.
+ *
+ * @author Steve Johnson
+ */
+public final class StageKernel {
+	/**
+	 * The mass of one engine in kg.
+	 */
+	private final double engineMass;
+
+	/**
+	 * The dry mass of one engine in kg.
+	 */
+	private final double engineDryMass;
+
+	/**
+	 * The dry-to-wet mass ratio of the procedural tank.
+	 */
+	private final double tankDryMassRatio;
+
+	/**
+	 * The number of stacks in the stage.
+	 */
+	private final int stackSize;
+
+	/**
+	 * The combined thrust of all stacks in N.
+	 */
+	private final double thrust;
+
+	/**
+	 * The combined, scaled Isp of all stacks in seconds.
+	 */
+	private final double isp;
+
+	/**
+	 * @param engine		the engine of each stack
+	 * @param stackSize		the number of stacks
+	 * @param ispContext	the Isp scaler
+	 */
+	public StageKernel(Thrustable engine, int stackSize, IspContext ispContext) {
+		this(engine.getMass(), engine.getDryMass(), engine.getThrust(), engine.getIsp(IspContext.UNSCALED),
+				ProceduralTank.getDryMassRatio(engine.getPropellants()), stackSize, ispContext);
+	}
+
+	/**
+	 * @param engines		the packed engines
+	 * @param row			the row of the engine of each stack
+	 * @param stackSize		the number of stacks
+	 * @param ispContext	the Isp scaler
+	 */
+	public StageKernel(PackedEngines engines, int row, int stackSize, IspContext ispContext) {
+		this(engines.getMass(row), engines.getDryMass(row), engines.getThrust(row), engines.getIsp(row),
+				ProceduralTank.getDryMassRatio(engines.getEngine(row).getPropellants()), stackSize, ispContext);
+	}
+
+	private StageKernel(double engineMass, double engineDryMass, double engineThrust, double engineIsp,
+			double tankDryMassRatio, int stackSize, IspContext ispContext) {
+		if (stackSize < 1) {
+			throw new IllegalArgumentException("At least one stack is required.");
+		}
+		this.engineMass = engineMass;
+		this.engineDryMass = engineDryMass;
+		this.tankDryMassRatio = tankDryMassRatio;
+		this.stackSize = stackSize;
+
+		// The stacks are one group, so the thrust is multiplied by the count
+		// as StackGroup does and the Isp weighs the group's thrust as Stage does.
+		double thrust = stackSize * engineThrust;
+		double ispDenominator = thrust / engineIsp;
+		this.thrust = thrust;
+		this.isp = ispContext.scale(thrust / ispDenominator);
+	}
+
+	/**
+	 * @param engine		the engine of each stack
+	 * @param stackSize		the number of stacks
+	 */
+	public StageKernel(Thrustable engine, int stackSize) {
+		this(engine, stackSize, IspContext.getDefault());
+	}
+
+	/**
+	 * @param engine		the engine of the single stack
+	 */
+	public StageKernel(Thrustable engine) {
+		this(engine, 1);
+	}
+
+	/**
+	 * Returns the total mass of the stage.
+	 *
+	 * @param payloadMass		the mass carried by the stage in kg
+	 * @param tankMass			the mass of each stack's tank in kg
+	 * @return					the total mass in kg
+	 */
+	public double getMass(double payloadMass, double tankMass) {
+		return payloadMass + sumStacks(tankMass + engineMass);
+	}
+
+	/**
+	 * Returns the mass of the stage once its tanks are empty.
+	 *
+	 * @param payloadMass		the mass carried by the stage in kg
+	 * @param tankMass			the mass of each stack's tank in kg
+	 * @return					the dry mass in kg
+	 */
+	public double getDryMass(double payloadMass, double tankMass) {
+		return payloadMass + sumStacks(tankDryMassRatio * tankMass + engineDryMass);
+	}
+
+	/**
+	 * Returns the starting thrust-to-weight ratio of the stage.
+	 *
+	 * @param mass			the total mass of the stage in kg
+	 * @return				the minimum TWR
+	 */
+	public double getMinTWR(double mass) {
+		return thrust / (Thrustable.KERBIN_GRAVITY * mass);
+	}
+
+	/**
+	 * Returns the tank mass of each stack at which the stage's starting TWR
+	 * falls to a minimum, solving getMinTWR(getMass(payloadMass, tankMass))
+	 * for the tank mass.
+	 *
+	 * @param payloadMass		the mass carried by the stage in kg
+	 * @param minTWR			the minimum starting TWR
+	 * @return					the largest tank mass in kg
+	 */
+	public double getMaxTankMass(double payloadMass, double minTWR) {
+		double maxMass = thrust / (Thrustable.KERBIN_GRAVITY * minTWR);
+		return (maxMass - payloadMass) / stackSize - engineMass;
+	}
+
+	/**
+	 * Returns the delta-V of the stage.
+	 *
+	 * @param mass			the total mass of the stage in kg
+	 * @param dryMass		the dry mass of the stage in kg
+	 * @return				the delta-V in m/s
+	 */
+	public double getDeltaV(double mass, double dryMass) {
+		return isp * Math.log(mass / dryMass) * Thrustable.KERBIN_GRAVITY;
+	}
+
+	public double getEngineMass() {
+		return engineMass;
+	}
+
+	public double getEngineDryMass() {
+		return engineDryMass;
+	}
+
+	public double getThrust() {
+		return thrust;
+	}
+
+	public double getIsp() {
+		return isp;
+	}
+
+	public double getTankDryMassRatio() {
+		return tankDryMassRatio;
+	}
+
+	public int getStackSize() {
+		return stackSize;
+	}
+
+	/**
+	 * Multiplies a stack's value by the number of stacks, as StackGroup does,
+	 * so rounding matches.
+	 *
+	 * @param stackValue		the value of a single stack
+	 * @return					the value of all stacks
+	 */
+	private double sumStacks(double stackValue) {
+		return stackSize * stackValue;
+	}
+}
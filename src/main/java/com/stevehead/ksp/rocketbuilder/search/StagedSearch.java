@@ -0,0 +1,1353 @@
+package com.stevehead.ksp.rocketbuilder.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.stevehead.ksp.rocketbuilder.interfaces.IspContext;
+import com.stevehead.ksp.rocketbuilder.interfaces.Massive;
+import com.stevehead.ksp.rocketbuilder.interfaces.Thrustable;
+import com.stevehead.ksp.rocketbuilder.rocket.Payload;
+import com.stevehead.ksp.rocketbuilder.rocket.ProceduralTank;
+import com.stevehead.ksp.rocketbuilder.rocket.Rocket;
+import com.stevehead.ksp.rocketbuilder.rocket.Stack;
+import com.stevehead.ksp.rocketbuilder.rocket.Stage;
+import com.stevehead.ksp.rocketbuilder.search.SearchStats.Rejection;
+
+/**
+ * StagedSearch walks the tank masses of a rocket with any number of stages
+ * and finds the design that carries the heaviest payload to the target
+ * delta-V, preferring the highest payload fraction at that payload.
+ * <p>
+ * Stages are indexed from the bottom, so engine 0 is the first stage. The
+ * search fixes the top stage first and works its way down, and every upper
+ * stage is evaluated once and reused by all the lower stage candidates
+ * beneath it.
+ *
+ * @author Steve Johnson
+ */
+public class StagedSearch {
+	/**
+	 * The smallest ratio of an upper stage's tank to the tank of each stack
+	 * below it.
+	 */
+	public static final double MIN_TANK_SIZE_RATIO = 0.3;
+
+	/**
+	 * The largest ratio of an upper stage's tank to the tank of each stack
+	 * below it.
+	 */
+	public static final double MAX_TANK_SIZE_RATIO = 1;
+	
+	/**
+	 * The number of grid steps checked on each side of the analytic solution.
+	 */
+	public static final int ANALYTIC_SEARCH_RADIUS = 2;
+
+	/**
+	 * The number of times the multi-resolution search halves its grid step,
+	 * by default.
+	 */
+	public static final int DEFAULT_RESOLUTION_LEVELS = 3;
+
+	/**
+	 * The number of designs the multi-resolution search refines at each
+	 * level, by default.
+	 */
+	public static final int DEFAULT_REFINED_DESIGNS = 16;
+
+	/**
+	 * The number of grid steps checked on each side of a design being
+	 * refined, one step of the level above.
+	 */
+	private static final int REFINEMENT_RADIUS = 2;
+
+	/**
+	 * The largest range of grid points the line search scans instead of
+	 * probing.
+	 */
+	private static final int LINE_SEARCH_SCAN = 3;
+
+	/**
+	 * Scales the optimistic bounds down slightly, so rounding never prunes a
+	 * design the exhaustive walk would keep.
+	 */
+	private static final double BOUND_TOLERANCE = 1 - 1e-9;
+
+	/**
+	 * The number of intervals the payload and top tank masses are split into
+	 * for the payload fraction bound.
+	 */
+	private static final int BOUND_INTERVALS = 32;
+
+	/**
+	 * The most stages the payload is bisected for. Above that a lighter
+	 * payload can be harder to lift, so the payload is stepped down instead.
+	 */
+	private static final int MAX_BISECTION_STAGES = 2;
+
+	private final IspContext ispContext;
+	private final double targetDeltaV;
+	private final double massIncrements;
+	private final double[] targetTWRs;
+	private final Thrustable[] engines;
+	private final int[] stackSizes;
+	private final StageKernel[] kernels;
+	private AnalyticStaging analyticStaging;
+
+	/**
+	 * Optimistic limits of the stages up to each index, used for pruning. An
+	 * engine's own propellant needs no tank, so it counts against the dry
+	 * mass of the tank it saves. Where that leaves some engine's mass below
+	 * zero, the growth bound doesn't hold, and only the engines' masses are
+	 * bounded.
+	 */
+	private final double[] boundExhaustVelocities;
+	private final double[] boundEngineDryMasses;
+	private final double[] boundEngineMasses;
+	private final boolean[] boundGrowthHolds;
+	private final double[] boundDeltaVs;
+	private final double maxFirstStageMass;
+	private double[] analyticTankMasses;
+	private SearchStrategy strategy = SearchStrategy.EXHAUSTIVE;
+	private PayloadSearch payloadSearch = PayloadSearch.LINEAR;
+	private SearchListener listener = SearchListener.NONE;
+	private int topDesigns = 1;
+	private double[] paretoEpsilons;
+	private UpperStageCandidates upperStageCandidates;
+	private int resolutionLevels = DEFAULT_RESOLUTION_LEVELS;
+	private int refinedDesigns = DEFAULT_REFINED_DESIGNS;
+	private boolean stageTiming;
+
+	/**
+	 * State of the stages fixed so far, indexed by stage. A tank is held as
+	 * its index on the grid of mass increments, and its mass is only ever
+	 * worked out from the index, so the same design always has the same
+	 * masses however it was reached.
+	 */
+	private final long[] tankIndices;
+	private final double[] tankMasses;
+	private final double[] stageMasses;
+	private final double[] stageDeltaVs;
+	private final double[] stageTWRs;
+
+	/**
+	 * State of the payload currently being searched.
+	 */
+	private double payloadMass;
+	private double bestPayloadFraction;
+	private final double[] bestTankMasses;
+	private final long[] bestTankIndices;
+	private boolean bestFound;
+
+	/**
+	 * The best designs of the current payload, when more than one is kept.
+	 */
+	private DesignHeap designs;
+
+	/**
+	 * The non-dominated designs of the current payload, when asked for.
+	 */
+	private ParetoArchive paretoFront;
+
+	/**
+	 * The grid stride of the walk in mass increments, more than one while
+	 * the multi-resolution search walks its first level.
+	 */
+	private long gridStride = 1;
+
+	/**
+	 * The designs of the current multi-resolution level, the ones reaching
+	 * the target delta-V and the ones closest to it, while a level above the
+	 * last is refined.
+	 */
+	private boolean refining;
+	private DesignHeap levelDesigns;
+	private DesignHeap nearDesigns;
+
+	/**
+	 * The designs evaluated at the current multi-resolution level, as the
+	 * refined areas overlap.
+	 */
+	private final Set<List<Long>> visited = new HashSet<List<Long>>();
+
+	/**
+	 * Whether the search stops at the first design reaching the target, and
+	 * whether one has been found.
+	 */
+	private boolean anyDesign;
+	private boolean designFound;
+
+	/**
+	 * The statistics of the current run.
+	 */
+	private SearchStats stats;
+
+	/**
+	 * @param ispContext			the Isp scaler of the search
+	 * @param targetDeltaV			the target delta-V in m/s
+	 * @param massIncrements		the mass grid step in kg
+	 * @param targetTWRs			the minimum starting TWR of each stage
+	 * @param firstStageStackSize	the number of stacks in the first stage
+	 * @param engines				the engine of each stage, first stage first
+	 */
+	public StagedSearch(IspContext ispContext, double targetDeltaV, double massIncrements, double[] targetTWRs, int firstStageStackSize, Thrustable... engines) {
+		if (engines.length == 0) {
+			throw new IllegalArgumentException("One engine is required at least.");
+		} else if (targetTWRs.length != engines.length) {
+			throw new IllegalArgumentException("A target TWR is required for every stage.");
+		}
+		this.ispContext = ispContext;
+		this.targetDeltaV = targetDeltaV;
+		this.massIncrements = massIncrements;
+		this.targetTWRs = targetTWRs;
+		this.engines = engines;
+
+		int stages = engines.length;
+		this.stackSizes = new int[stages];
+		this.kernels = new StageKernel[stages];
+		for (int i = 0; i < stages; i++) {
+			stackSizes[i] = i == 0 ? firstStageStackSize : 1;
+			kernels[i] = new StageKernel(engines[i], stackSizes[i], ispContext);
+		}
+
+		this.tankIndices = new long[stages];
+		this.tankMasses = new double[stages];
+		this.stageMasses = new double[stages];
+		this.stageDeltaVs = new double[stages];
+		this.stageTWRs = new double[stages];
+		this.bestTankMasses = new double[stages];
+		this.bestTankIndices = new long[stages];
+
+		this.boundExhaustVelocities = new double[stages];
+		this.boundEngineDryMasses = new double[stages];
+		this.boundEngineMasses = new double[stages];
+		this.boundGrowthHolds = new boolean[stages];
+		this.boundDeltaVs = new double[stages];
+		for (int i = 0; i < stages; i++) {
+			StageKernel kernel = kernels[i];
+			double exhaustVelocity = kernel.getIsp() * Thrustable.KERBIN_GRAVITY;
+			double tankDryMassRatio = kernel.getTankDryMassRatio();
+			double tankRatio = tankDryMassRatio / (1 - tankDryMassRatio);
+			double effectiveExhaustVelocity = (1 - tankDryMassRatio) * exhaustVelocity;
+			double enginePropellantMass = kernel.getEngineMass() - kernel.getEngineDryMass();
+			double engineDryMass = stackSizes[i] * (kernel.getEngineDryMass() - tankRatio * enginePropellantMass);
+			double engineMass = stackSizes[i] * kernel.getEngineMass();
+
+			// The mass ratio runs from the engine's own, with no tank, to the
+			// tank's, with an endless tank.
+			double massRatio = 1 / tankDryMassRatio;
+			if (enginePropellantMass > 0) massRatio = Math.max(massRatio, kernel.getEngineMass() / kernel.getEngineDryMass());
+			double deltaV = exhaustVelocity * Math.log(massRatio);
+			boundExhaustVelocities[i] = i == 0 ? effectiveExhaustVelocity : Math.max(boundExhaustVelocities[i - 1], effectiveExhaustVelocity);
+			boundEngineDryMasses[i] = i == 0 ? engineDryMass : boundEngineDryMasses[i - 1] + engineDryMass;
+			boundEngineMasses[i] = i == 0 ? engineMass : boundEngineMasses[i - 1] + engineMass;
+			boundGrowthHolds[i] = engineDryMass >= 0 && (i == 0 || boundGrowthHolds[i - 1]);
+			boundDeltaVs[i] = i == 0 ? deltaV : boundDeltaVs[i - 1] + deltaV;
+		}
+		this.maxFirstStageMass = kernels[0].getThrust() / (Thrustable.KERBIN_GRAVITY * targetTWRs[0]);
+	}
+
+	/**
+	 * Searches with the global Isp scaler as it is when the search is created.
+	 *
+	 * @param targetDeltaV			the target delta-V in m/s
+	 * @param massIncrements		the mass grid step in kg
+	 * @param targetTWRs			the minimum starting TWR of each stage
+	 * @param firstStageStackSize	the number of stacks in the first stage
+	 * @param engines				the engine of each stage, first stage first
+	 */
+	public StagedSearch(double targetDeltaV, double massIncrements, double[] targetTWRs, int firstStageStackSize, Thrustable... engines) {
+		this(IspContext.getDefault(), targetDeltaV, massIncrements, targetTWRs, firstStageStackSize, engines);
+	}
+
+	public StagedSearch setStrategy(SearchStrategy strategy) {
+		this.strategy = strategy;
+		return this;
+	}
+
+	/**
+	 * Sets how the heaviest payload is found. Bisection is only used for one
+	 * and two stages, more are searched linearly whatever is set.
+	 *
+	 * @param payloadSearch		the payload search
+	 * @return					the search
+	 */
+	public StagedSearch setPayloadSearch(PayloadSearch payloadSearch) {
+		this.payloadSearch = payloadSearch;
+		return this;
+	}
+
+	public StagedSearch setListener(SearchListener listener) {
+		this.listener = listener;
+		return this;
+	}
+
+	/**
+	 * Sets whether the time spent walking each stage is measured. Off by
+	 * default, as it reads the clock every time a stage is walked.
+	 *
+	 * @param stageTiming		whether each stage is timed
+	 * @return					the search
+	 */
+	public StagedSearch setStageTiming(boolean stageTiming) {
+		this.stageTiming = stageTiming;
+		return this;
+	}
+
+	/**
+	 * Sets the number of designs kept, by payload fraction, at the payload
+	 * the search settles on. Only their tank masses are kept while
+	 * searching, and the rockets are built once the search is over.
+	 *
+	 * @param topDesigns		the number of designs kept
+	 * @return					the search
+	 */
+	public StagedSearch setTopDesigns(int topDesigns) {
+		if (topDesigns < 1) {
+			throw new IllegalArgumentException("At least one design must be kept.");
+		}
+		this.topDesigns = topDesigns;
+		return this;
+	}
+
+	/**
+	 * Shares the top stage candidates with other searches of the same top
+	 * stage, instead of walking them in every search. Only the exhaustive
+	 * and branch and bound strategies use them.
+	 *
+	 * @param upperStageCandidates	the candidates, or null to walk them here
+	 * @return						the search
+	 */
+	public StagedSearch setUpperStageCandidates(UpperStageCandidates upperStageCandidates) {
+		if (upperStageCandidates != null) {
+			int top = engines.length - 1;
+			upperStageCandidates.bind(engines[top], stackSizes[top], ispContext, targetTWRs[top], massIncrements);
+		}
+		this.upperStageCandidates = upperStageCandidates;
+		return this;
+	}
+
+	/**
+	 * Sets how the multi-resolution strategy refines. The first level walks
+	 * a grid 2^levels times as coarse as the mass increments, and every
+	 * level after it halves the step and walks one step of the level above
+	 * on each side of that level's best designs.
+	 *
+	 * @param resolutionLevels		the number of times the step is halved
+	 * @param refinedDesigns		the number of designs refined at each level
+	 * @return						the search
+	 */
+	public StagedSearch setMultiResolution(int resolutionLevels, int refinedDesigns) {
+		if (resolutionLevels < 1 || resolutionLevels > 30) {
+			throw new IllegalArgumentException("The resolution levels must be between 1 and 30.");
+		} else if (refinedDesigns < 1) {
+			throw new IllegalArgumentException("At least one design must be refined.");
+		}
+		this.resolutionLevels = resolutionLevels;
+		this.refinedDesigns = refinedDesigns;
+		return this;
+	}
+
+	/**
+	 * Keeps the Pareto front of payload fraction, delta-V and starting TWR
+	 * of the designs reaching the target delta-V, at the payload the search
+	 * settles on. Each objective is cut into boxes of its epsilon, and the
+	 * front holds a design per box at most.
+	 * <p>
+	 * Branch and bound only prunes designs that can't reach the target
+	 * delta-V while the front is kept, as a low payload fraction may come
+	 * with a high delta-V or TWR.
+	 *
+	 * @param payloadFractionEpsilon	the box size of the payload fraction in percent
+	 * @param deltaVEpsilon				the box size of the delta-V in m/s
+	 * @param twrEpsilon				the box size of the starting TWR
+	 * @return							the search
+	 */
+	public StagedSearch setParetoFront(double payloadFractionEpsilon, double deltaVEpsilon, double twrEpsilon) {
+		if (!(payloadFractionEpsilon > 0 && deltaVEpsilon > 0 && twrEpsilon > 0)) {
+			throw new IllegalArgumentException("The Pareto epsilons must be positive.");
+		}
+		this.paretoEpsilons = new double[] {payloadFractionEpsilon, deltaVEpsilon, twrEpsilon};
+		return this;
+	}
+
+	/**
+	 * Returns an upper bound on the payload fraction of any design the search
+	 * can find, without searching.
+	 * <p>
+	 * The top stage is taken as it is, with its tank capped by its target TWR.
+	 * The stages beneath it are bounded as in the branch and bound, counting
+	 * the propellant the engines carry themselves. The first stage is capped
+	 * by its target TWR. The payloads and top tank
+	 * masses are split into intervals, and each interval is bounded by its
+	 * ends: a heavier payload or a lighter tank only makes the rocket heavier
+	 * for the same delta-V, and a larger tank only adds delta-V.
+	 *
+	 * @param maxPayloadMass		the payload mass to start from in kg
+	 * @return						the bound in percent, or 0 if no design can
+	 * 								reach the target delta-V
+	 */
+	public double getPayloadFractionBound(double maxPayloadMass) {
+		int top = engines.length - 1;
+		if (targetDeltaV >= boundDeltaVs[top]) return 0;
+
+		double bound = 0;
+		for (int p = 0; p < BOUND_INTERVALS; p++) {
+			double minPayloadMass = maxPayloadMass * p / BOUND_INTERVALS;
+			double payloadMass = maxPayloadMass * (p + 1) / BOUND_INTERVALS;
+			double minMass = getMinMass(top, minPayloadMass);
+			if (minMass <= maxFirstStageMass) {
+				bound = Math.max(bound, 100.0 * payloadMass / (minMass * BOUND_TOLERANCE));
+			}
+		}
+		return bound;
+	}
+
+	/**
+	 * Returns a lower bound on the mass of any design carrying at least the
+	 * given payload, over every top stage tank the TWR target of the top
+	 * stage allows with that payload.
+	 *
+	 * @param top					the top stage index
+	 * @param payloadMass			the lightest payload in kg
+	 * @return						the mass in kg, or infinity if no design
+	 * 								can reach the target delta-V
+	 */
+	private double getMinMass(int top, double payloadMass) {
+		StageKernel kernel = kernels[top];
+		double maxTopMass = kernel.getThrust() / (Thrustable.KERBIN_GRAVITY * targetTWRs[top]);
+		double maxTankMass = (maxTopMass - payloadMass) / kernel.getStackSize() - kernel.getEngineMass();
+		if (maxTankMass < massIncrements) return Double.POSITIVE_INFINITY;
+
+		double minMass = Double.POSITIVE_INFINITY;
+		for (int t = 0; t < BOUND_INTERVALS; t++) {
+			double minTankMass = massIncrements + (maxTankMass - massIncrements) * t / BOUND_INTERVALS;
+			double tankMass = massIncrements + (maxTankMass - massIncrements) * (t + 1) / BOUND_INTERVALS;
+			double topMass = kernel.getMass(payloadMass, minTankMass);
+			double topDeltaV = kernel.getDeltaV(kernel.getMass(payloadMass, tankMass), kernel.getDryMass(payloadMass, tankMass));
+			double remainingDeltaV = Math.max(targetDeltaV - topDeltaV, 0);
+
+			double mass;
+			if (top == 0) {
+				mass = remainingDeltaV > 0 ? Double.POSITIVE_INFINITY : topMass;
+			} else {
+				mass = getMinFirstStageMass(top, topMass, remainingDeltaV);
+			}
+			minMass = Math.min(minMass, mass);
+		}
+		return minMass;
+	}
+
+	/**
+	 * Finds the heaviest payload for which some design reaches the target
+	 * delta-V, and returns the best design at that payload.
+	 *
+	 * @param maxPayloadMass		the payload mass to start from in kg
+	 * @return						the best rocket, or null if none was found
+	 */
+	public Rocket run(double maxPayloadMass) {
+		return search(maxPayloadMass).getRocket();
+	}
+
+	/**
+	 * Finds the heaviest payload for which some design reaches the target
+	 * delta-V, and returns the best designs at that payload along with the
+	 * statistics of the search.
+	 *
+	 * @param maxPayloadMass		the payload mass to start from in kg
+	 * @return						the best rockets and the statistics
+	 */
+	public SearchResult search(double maxPayloadMass) {
+		stats = new SearchStats(engines.length, stageTiming);
+		designs = topDesigns > 1 ? new DesignHeap(topDesigns, engines.length) : null;
+		paretoFront = paretoEpsilons == null ? null
+				: new ParetoArchive(engines.length, paretoEpsilons[0], paretoEpsilons[1], paretoEpsilons[2]);
+		if (strategy == SearchStrategy.MULTI_RESOLUTION) {
+			levelDesigns = new DesignHeap(refinedDesigns, engines.length);
+			nearDesigns = new DesignHeap(refinedDesigns, engines.length);
+		}
+		stats.start();
+		Rocket rocket;
+		switch (engines.length > MAX_BISECTION_STAGES ? PayloadSearch.LINEAR : payloadSearch) {
+		case BISECTION:
+			rocket = runBisection(maxPayloadMass);
+			break;
+		default:
+			rocket = runLinear(maxPayloadMass);
+			break;
+		}
+		List<Rocket> rockets = new ArrayList<Rocket>();
+		if (designs != null && rocket != null) {
+			// The first of the kept designs is the best rocket itself.
+			int[] slots = designs.getSlots();
+			rockets.add(rocket);
+			for (int i = 1; i < slots.length; i++) {
+				rockets.add(buildRocket(designs.getTankMasses(slots[i])));
+			}
+		} else if (rocket != null) {
+			rockets.add(rocket);
+		}
+		List<Rocket> front = paretoFront == null ? new ArrayList<Rocket>() : buildParetoFront();
+		stats.stop();
+		return new SearchResult(rocket, rocket == null ? Double.NaN : payloadMass,
+				rocket == null ? Double.NaN : bestPayloadFraction, rocket == null ? null : bestTankMasses.clone(),
+				rockets, front, stats);
+	}
+
+	/**
+	 * Builds the rockets of the Pareto front, from the highest payload
+	 * fraction to the lowest.
+	 *
+	 * @return						the rockets
+	 */
+	private List<Rocket> buildParetoFront() {
+		Integer[] order = new Integer[paretoFront.size()];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer index1, Integer index2) {
+				return Double.compare(paretoFront.getPayloadFraction(index2), paretoFront.getPayloadFraction(index1));
+			}
+		});
+		List<Rocket> front = new ArrayList<Rocket>(order.length);
+		for (int index : order) {
+			front.add(buildRocket(paretoFront.getTankMasses(index)));
+		}
+		return front;
+	}
+
+	/**
+	 * Steps the payload down from the maximum until some design reaches the
+	 * target delta-V.
+	 *
+	 * @param maxPayloadMass		the payload mass to start from in kg
+	 * @return						the best rocket, or null if none was found
+	 */
+	private Rocket runLinear(double maxPayloadMass) {
+		for (long step = 0; getPayloadMass(maxPayloadMass, step) > 0; step++) {
+			Rocket rocket = searchPayload(getPayloadMass(maxPayloadMass, step));
+			if (rocket != null) return rocket;
+		}
+		return null;
+	}
+
+	/**
+	 * Gallops down the payload grid until some design reaches the target
+	 * delta-V, bisects back up to the heaviest such payload, and only then
+	 * runs the full search.
+	 *
+	 * @param maxPayloadMass		the payload mass to start from in kg
+	 * @return						the best rocket, or null if none was found
+	 */
+	private Rocket runBisection(double maxPayloadMass) {
+		double[] payloadMasses = getPayloadMasses(maxPayloadMass);
+		if (payloadMasses.length == 0) return null;
+
+		// Payloads up to lastInfeasible have no design, firstFeasible has one.
+		int lastInfeasible = -1;
+		int firstFeasible = -1;
+		int step = 1;
+		while (firstFeasible < 0) {
+			int index = Math.min(lastInfeasible + step, payloadMasses.length - 1);
+			if (hasDesign(payloadMasses[index])) {
+				firstFeasible = index;
+			} else if (index == payloadMasses.length - 1) {
+				return null;
+			} else {
+				lastInfeasible = index;
+				step *= 2;
+			}
+		}
+
+		while (firstFeasible - lastInfeasible > 1) {
+			int index = (lastInfeasible + firstFeasible) >>> 1;
+			if (hasDesign(payloadMasses[index])) {
+				firstFeasible = index;
+			} else {
+				lastInfeasible = index;
+			}
+		}
+
+		return searchPayload(payloadMasses[firstFeasible]);
+	}
+
+	/**
+	 * Returns the payload grid from the maximum down, stepped the same way as
+	 * the linear search so both land on the same payloads.
+	 *
+	 * @param maxPayloadMass		the payload mass to start from in kg
+	 * @return						the payload masses in kg
+	 */
+	private double[] getPayloadMasses(double maxPayloadMass) {
+		int count = 0;
+		while (getPayloadMass(maxPayloadMass, count) > 0) {
+			count++;
+		}
+		double[] payloadMasses = new double[count];
+		for (int i = 0; i < count; i++) {
+			payloadMasses[i] = getPayloadMass(maxPayloadMass, i);
+		}
+		return payloadMasses;
+	}
+
+	/**
+	 * Returns a payload of the grid, worked out from its index rather than
+	 * stepped down to, so it's the same however the search got there.
+	 *
+	 * @param maxPayloadMass		the payload mass to start from in kg
+	 * @param step					the number of grid steps down
+	 * @return						the payload mass in kg
+	 */
+	private double getPayloadMass(double maxPayloadMass, long step) {
+		return maxPayloadMass - step * massIncrements;
+	}
+
+	/**
+	 * Whether any design reaches the target delta-V with the payload. Stops
+	 * at the first one found.
+	 *
+	 * @param payloadMass			the payload mass in kg
+	 * @return						whether a design was found
+	 */
+	private boolean hasDesign(double payloadMass) {
+		anyDesign = true;
+		designFound = false;
+		stats.countProbe();
+		try {
+			searchPayload(payloadMass);
+			return designFound;
+		} finally {
+			anyDesign = false;
+			designFound = false;
+		}
+	}
+
+	/**
+	 * Searches every design for a single payload.
+	 *
+	 * @param payloadMass			the payload mass in kg
+	 * @return						the best rocket, or null if none was found
+	 */
+	private Rocket searchPayload(double payloadMass) {
+		if (!anyDesign) stats.countPayload();
+		this.payloadMass = payloadMass;
+		this.bestPayloadFraction = 0;
+		this.bestFound = false;
+		if (designs != null) designs.clear();
+		if (paretoFront != null) paretoFront.clear();
+		switch (strategy) {
+		case EXHAUSTIVE:
+		case BRANCH_AND_BOUND:
+			searchStage(engines.length - 1, payloadMass, 1);
+			break;
+		case ANALYTIC:
+			searchAnalytic(payloadMass);
+			break;
+		case MULTI_RESOLUTION:
+			searchMultiResolution(payloadMass);
+			break;
+		case LINE_SEARCH:
+			searchLine(engines.length - 1, payloadMass);
+			break;
+		}
+		return bestFound ? buildRocket(bestTankMasses) : null;
+	}
+
+	/**
+	 * Walks the tank mass of one stage, with every stage above it fixed.
+	 * Only the grid points within the stage's TWR and tank size ratio limits
+	 * are walked, as those are solved for before the walk.
+	 *
+	 * @param i					the stage index
+	 * @param upperMass			the mass carried by the stage in kg
+	 * @param firstIndex		the grid index of the first tank to try
+	 */
+	private void searchStage(int i, double upperMass, long firstIndex) {
+		long start = startStage();
+		try {
+			if (i == engines.length - 1 && upperStageCandidates != null && gridStride == 1) {
+				searchUpperStage(i, upperMass);
+				return;
+			}
+			long lastStep = getLastStep(i, upperMass, firstIndex, gridStride);
+			for (long step = getFirstStep(i, upperMass, firstIndex, gridStride); step <= lastStep; step++) {
+				if (fixStage(i, upperMass, firstIndex + step * gridStride) == Check.VALID && searchBeneath(i)) break;
+			}
+		} finally {
+			stopStage(i, start);
+		}
+	}
+
+	/**
+	 * Returns the first grid step of a stage's tank that isn't too small for
+	 * the tank size ratio. It's solved for and then checked against the
+	 * ratio itself, so rounding never moves it.
+	 *
+	 * @param i					the stage index
+	 * @param upperMass			the mass carried by the stage in kg
+	 * @param firstIndex		the grid index of the first tank
+	 * @param stride			the grid indices per step
+	 * @return					the number of steps from the first tank
+	 */
+	private long getFirstStep(int i, double upperMass, long firstIndex, long stride) {
+		if (i == engines.length - 1) return 0;
+		double minTankMass = stackSizes[i] * tankMasses[i + 1] / MAX_TANK_SIZE_RATIO;
+		long step = Math.max(0, (long) Math.ceil((minTankMass / massIncrements - firstIndex) / stride));
+		while (step > 0 && !holds(Limit.BELOW_TANK_SIZE_RATIO, i, upperMass, firstIndex + (step - 1) * stride)) {
+			step--;
+		}
+		while (holds(Limit.BELOW_TANK_SIZE_RATIO, i, upperMass, firstIndex + step * stride)) {
+			step++;
+		}
+		return step;
+	}
+
+	/**
+	 * Returns the last grid step of a stage's tank that reaches the stage's
+	 * TWR targets and isn't too large for the tank size ratio. It's solved
+	 * for and then checked against the limits themselves, so rounding never
+	 * moves it.
+	 *
+	 * @param i					the stage index
+	 * @param upperMass			the mass carried by the stage in kg
+	 * @param firstIndex		the grid index of the first tank
+	 * @param stride			the grid indices per step
+	 * @return					the number of steps from the first tank, or
+	 * 							-1 if even the first is out of the limits
+	 */
+	private long getLastStep(int i, double upperMass, long firstIndex, long stride) {
+		boolean topStage = i == engines.length - 1;
+		double minTWR = i > 0 && !topStage ? Math.max(targetTWRs[i], stageTWRs[i + 1]) : targetTWRs[i];
+		double maxTankMass = kernels[i].getMaxTankMass(upperMass, minTWR);
+		if (!topStage) {
+			maxTankMass = Math.min(maxTankMass, stackSizes[i] * tankMasses[i + 1] / MIN_TANK_SIZE_RATIO);
+		}
+		long step = Math.max(-1, (long) Math.floor((maxTankMass / massIncrements - firstIndex) / stride));
+		while (step >= 0 && !isWithinLimits(i, upperMass, firstIndex + step * stride)) {
+			step--;
+		}
+		while (isWithinLimits(i, upperMass, firstIndex + (step + 1) * stride)) {
+			step++;
+		}
+		return step;
+	}
+
+	/**
+	 * Whether a stage's tank reaches the stage's TWR targets and isn't too
+	 * large for the tank size ratio.
+	 */
+	private boolean isWithinLimits(int i, double upperMass, long tankIndex) {
+		return holds(Limit.TWR, i, upperMass, tankIndex)
+				&& (i == engines.length - 1 || holds(Limit.TANK_SIZE_RATIO, i, upperMass, tankIndex));
+	}
+
+	/**
+	 * Walks the shared candidates of the top stage. The statistics are
+	 * counted as if the stage was walked here.
+	 *
+	 * @param i					the top stage index
+	 * @param upperMass			the payload mass in kg
+	 */
+	private void searchUpperStage(int i, double upperMass) {
+		UpperStageCandidates.Candidates candidates = upperStageCandidates.get(upperMass);
+		for (int j = 0; j < candidates.size(); j++) {
+			stats.countCandidate(i);
+			stats.countAccepted(i);
+			tankIndices[i] = j + 1;
+			tankMasses[i] = candidates.tankMasses[j];
+			stageMasses[i] = candidates.masses[j];
+			stageTWRs[i] = candidates.twrs[j];
+			stageDeltaVs[i] = candidates.deltaVs[j];
+			if (searchBeneath(i)) return;
+		}
+	}
+
+	/**
+	 * Returns the time a stage's walk starts at, if stages are timed.
+	 *
+	 * @return					the start time in nanoseconds, or 0
+	 */
+	private long startStage() {
+		return stageTiming ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * Counts the time of a stage's walk, if stages are timed.
+	 *
+	 * @param i					the stage index
+	 * @param start				the start time in nanoseconds
+	 */
+	private void stopStage(int i, long start) {
+		if (stageTiming) stats.addStageTime(i, System.nanoTime() - start);
+	}
+
+	/**
+	 * Searches the stages beneath a fixed stage, or evaluates the design if
+	 * it's the first stage.
+	 *
+	 * @param i					the stage index
+	 * @return					whether the walk of the stage can stop
+	 */
+	private boolean searchBeneath(int i) {
+		if (i == 0) {
+			evaluate();
+
+			// The first stage only gets heavier from here on.
+			if (strategy == SearchStrategy.BRANCH_AND_BOUND && 100.0 * payloadMass / stageMasses[0] <= getBoundPayloadFraction()) {
+				stats.countRejection(0, Rejection.BOUND);
+				return true;
+			}
+		} else if (strategy != SearchStrategy.BRANCH_AND_BOUND || canImprove(i)) {
+			searchStage(i - 1, stageMasses[i], tankIndices[i] + gridStride);
+		} else {
+			stats.countRejection(i, Rejection.BOUND);
+		}
+		return designFound;
+	}
+
+	/**
+	 * Solves the continuous staging problem and searches the grid points
+	 * around its solution.
+	 *
+	 * @param payloadMass		the payload mass in kg
+	 */
+	private void searchAnalytic(double payloadMass) {
+		if (analyticStaging == null) {
+			analyticStaging = new AnalyticStaging(targetDeltaV, targetTWRs, kernels);
+			analyticTankMasses = new double[engines.length];
+		}
+		searchAround(engines.length - 1, payloadMass, targetDeltaV);
+	}
+
+	/**
+	 * Solves one stage and the stages beneath it, then walks the grid points
+	 * around that stage's solution. Each grid point re-solves the stages
+	 * beneath it, so rounding one stage is made up for by the next.
+	 *
+	 * @param i					the stage index
+	 * @param upperMass			the mass carried by the stage in kg
+	 * @param deltaV			the delta-V still needed in m/s
+	 */
+	private void searchAround(int i, double upperMass, double deltaV) {
+		long start = startStage();
+		try {
+			boolean topStage = i == engines.length - 1;
+			double upperTankMass = topStage ? Double.NaN : tankMasses[i + 1];
+			if (!analyticStaging.solve(i, upperMass, upperTankMass, deltaV, analyticTankMasses)) return;
+
+			long center = Math.round(analyticTankMasses[i] / massIncrements);
+			long first = Math.max(Math.max(1, getFirstStep(i, upperMass, 0, 1)), center - ANALYTIC_SEARCH_RADIUS);
+			long last = Math.min(getLastStep(i, upperMass, 0, 1), center + ANALYTIC_SEARCH_RADIUS);
+			for (long index = first; index <= last; index++) {
+				if (fixStage(i, upperMass, index) == Check.VALID) {
+					if (i == 0) {
+						evaluate();
+					} else {
+						searchAround(i - 1, stageMasses[i], deltaV - stageDeltaVs[i]);
+					}
+					if (designFound) return;
+				}
+			}
+		} finally {
+			stopStage(i, start);
+		}
+	}
+
+	/**
+	 * Walks the coarsest grid with any design on it, then refines the best
+	 * designs of each level at the next one. Only the last level, on the mass increments, keeps
+	 * its designs. The designs closest to the target delta-V are refined
+	 * along with the ones reaching it, as the best design usually sits just
+	 * past the target and a payload only just within reach has no coarse
+	 * design at all. If the refined walks lose every design on the way down,
+	 * the payload is walked in full, so it's never missed.
+	 *
+	 * @param payloadMass		the payload mass in kg
+	 */
+	private void searchMultiResolution(double payloadMass) {
+		int top = engines.length - 1;
+		levelDesigns.clear();
+		nearDesigns.clear();
+
+		// A grid too coarse to hold any tank the TWR targets allow has nothing
+		// to refine, so the walk starts over on the next finer one.
+		int level = resolutionLevels;
+		while (true) {
+			refining = level > 0;
+			gridStride = 1L << level;
+			try {
+				searchStage(top, payloadMass, gridStride);
+			} finally {
+				gridStride = 1;
+			}
+			if (level == 0 || designFound || levelDesigns.size() + nearDesigns.size() > 0) break;
+			level--;
+		}
+
+		boolean refined = level > 0;
+		for (level--; level >= 0 && !designFound; level--) {
+			List<double[]> centers = getRefinedDesigns();
+			levelDesigns.clear();
+			nearDesigns.clear();
+			visited.clear();
+			refining = level > 0;
+			for (int j = 0; j < centers.size() && !designFound; j++) {
+				searchRefined(top, payloadMass, centers.get(j), 1L << level);
+			}
+		}
+		refining = false;
+		if (refined && !bestFound && !designFound) searchStage(top, payloadMass, 1);
+	}
+
+	/**
+	 * Returns the tank masses of the designs to refine at the next level,
+	 * the ones reaching the target delta-V first.
+	 *
+	 * @return					the tank masses of each design
+	 */
+	private List<double[]> getRefinedDesigns() {
+		List<double[]> centers = new ArrayList<double[]>(levelDesigns.size() + nearDesigns.size());
+		for (int slot : levelDesigns.getSlots()) {
+			centers.add(levelDesigns.getTankMasses(slot));
+		}
+		for (int slot : nearDesigns.getSlots()) {
+			centers.add(nearDesigns.getTankMasses(slot));
+		}
+		return centers;
+	}
+
+	/**
+	 * Walks the grid points of one stage around a design, and the stages
+	 * beneath it around the same design. A lower stage's tank is moved by
+	 * the same ratio as the tank above it, so the walk follows the tank size
+	 * ratio limits instead of running into them.
+	 *
+	 * @param i					the stage index
+	 * @param upperMass			the mass carried by the stage in kg
+	 * @param center			the tank mass of each stack of the design
+	 * @param stride			the grid indices per step
+	 */
+	private void searchRefined(int i, double upperMass, double[] center, long stride) {
+		long start = startStage();
+		try {
+			boolean topStage = i == engines.length - 1;
+			double centerTankMass = topStage ? center[i] : center[i] * tankMasses[i + 1] / center[i + 1];
+			long centerStep = Math.round(centerTankMass / (stride * massIncrements));
+			long first = Math.max(Math.max(1, getFirstStep(i, upperMass, 0, stride)), centerStep - REFINEMENT_RADIUS);
+			long last = Math.min(getLastStep(i, upperMass, 0, stride), centerStep + REFINEMENT_RADIUS);
+			for (long step = first; step <= last; step++) {
+				if (fixStage(i, upperMass, step * stride) == Check.VALID) {
+					if (i > 0) {
+						searchRefined(i - 1, stageMasses[i], center, stride);
+					} else if (visited.add(getGridKey())) {
+						evaluate();
+					}
+					if (designFound) return;
+				}
+			}
+		} finally {
+			stopStage(i, start);
+		}
+	}
+
+	private List<Long> getGridKey() {
+		List<Long> key = new ArrayList<Long>(tankIndices.length);
+		for (long index : tankIndices) {
+			key.add(index);
+		}
+		return key;
+	}
+
+	/**
+	 * Line searches the tank mass of one stage, with every stage above it
+	 * fixed, and returns the best payload fraction found beneath it.
+	 * <p>
+	 * The allowed tanks of a stage are a range of the grid, as the TWR only
+	 * falls with the tank mass and the tank size ratio bounds it from both
+	 * sides. With the stages above fixed, the first stage's delta-V only
+	 * rises with its tank mass and the payload fraction only falls, so its
+	 * best tank is the lightest reaching the target delta-V. Every stage
+	 * above it is ternary searched, probing the stages beneath at each point,
+	 * which assumes the best payload fraction beneath is unimodal in the
+	 * stage's tank mass.
+	 *
+	 * @param i					the stage index
+	 * @param upperMass			the mass carried by the stage in kg
+	 * @return					the best payload fraction in percent, or 0
+	 * 							if no design reaches the target delta-V
+	 */
+	private double searchLine(int i, double upperMass) {
+		long start = startStage();
+		try {
+			boolean topStage = i == engines.length - 1;
+			long first = 1;
+			if (!topStage) {
+				first = tankIndices[i + 1] + 1;
+				first = findLast(Limit.BELOW_TANK_SIZE_RATIO, i, upperMass, first, Long.MAX_VALUE / 2) + 1;
+			}
+			long last = findLast(Limit.TWR, i, upperMass, first, Long.MAX_VALUE / 2);
+			if (!topStage) last = findLast(Limit.TANK_SIZE_RATIO, i, upperMass, first, last);
+			if (first > last) {
+				stats.countCandidate(i);
+				stats.countRejection(i, Rejection.BELOW_TARGET_TWR);
+				return 0;
+			}
+
+			if (i == 0) {
+				long index = findLast(Limit.BELOW_TARGET_DELTA_V, 0, upperMass, first, last) + 1;
+				if (index > last) {
+					stats.countDesign();
+					stats.countRejection(0, Rejection.BELOW_TARGET_DELTA_V);
+					return 0;
+				}
+				fixStage(0, upperMass, index);
+				evaluate();
+				return 100.0 * payloadMass / stageMasses[0];
+			}
+
+			double best = 0;
+			while (last - first >= LINE_SEARCH_SCAN && !designFound) {
+				long third = (last - first) / 3;
+				double payloadFraction1 = searchLineAt(i, upperMass, first + third);
+				double payloadFraction2 = searchLineAt(i, upperMass, last - third);
+				best = Math.max(best, Math.max(payloadFraction1, payloadFraction2));
+				if (payloadFraction1 < payloadFraction2) {
+					first += third + 1;
+				} else if (payloadFraction1 > payloadFraction2) {
+					last -= third + 1;
+				} else {
+					// A tie, such as no design at either point, says nothing about
+					// where the best is, so the rest is scanned.
+					break;
+				}
+			}
+			for (long index = first; index <= last && !designFound; index++) {
+				best = Math.max(best, searchLineAt(i, upperMass, index));
+			}
+			return best;
+		} finally {
+			stopStage(i, start);
+		}
+	}
+
+	/**
+	 * Fixes one stage's tank at a grid point and line searches the stages
+	 * beneath it.
+	 *
+	 * @param i					the stage index
+	 * @param upperMass			the mass carried by the stage in kg
+	 * @param index				the grid index of the tank mass
+	 * @return					the best payload fraction in percent, or 0
+	 * 							if no design reaches the target delta-V
+	 */
+	private double searchLineAt(int i, double upperMass, long index) {
+		if (fixStage(i, upperMass, index) != Check.VALID) return 0;
+		return searchLine(i - 1, stageMasses[i]);
+	}
+
+	/**
+	 * Returns the last grid index of a run, from the first, over which a
+	 * limit holds. Gallops up to an index where it doesn't, then bisects
+	 * back.
+	 *
+	 * @param limit				the limit, holding up to some index only
+	 * @param i					the stage index
+	 * @param upperMass			the mass carried by the stage in kg
+	 * @param first				the first grid index
+	 * @param last				the last grid index to look at
+	 * @return					the last grid index, or first - 1 if the
+	 * 							limit doesn't hold at the first
+	 */
+	private long findLast(Limit limit, int i, double upperMass, long first, long last) {
+		if (first > last || !holds(limit, i, upperMass, first)) return first - 1;
+		long low = first;
+		long high;
+		long step = 1;
+		while (true) {
+			high = last - low <= step ? last + 1 : low + step;
+			if (high > last || !holds(limit, i, upperMass, high)) break;
+			low = high;
+			step *= 2;
+		}
+		while (high - low > 1) {
+			long index = (low + high) >>> 1;
+			if (holds(limit, i, upperMass, index)) {
+				low = index;
+			} else {
+				high = index;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Whether a limit holds for one stage's tank, with the stages above it
+	 * fixed. Mirrors the checks of fixStage().
+	 */
+	private boolean holds(Limit limit, int i, double upperMass, long tankIndex) {
+		StageKernel kernel = kernels[i];
+		double tankMass = tankIndex * massIncrements;
+		switch (limit) {
+		case TWR:
+			double twr = kernel.getMinTWR(kernel.getMass(upperMass, tankMass));
+			return twr >= targetTWRs[i] && (i == 0 || i == engines.length - 1 || twr >= stageTWRs[i + 1]);
+		case BELOW_TANK_SIZE_RATIO:
+			return tankMasses[i + 1] / (tankMass / stackSizes[i]) >= MAX_TANK_SIZE_RATIO;
+		case TANK_SIZE_RATIO:
+			return tankMasses[i + 1] / (tankMass / stackSizes[i]) > MIN_TANK_SIZE_RATIO;
+		default:
+			double deltaV = kernel.getDeltaV(kernel.getMass(upperMass, tankMass), kernel.getDryMass(upperMass, tankMass));
+			for (int j = i + 1; j < engines.length; j++) {
+				deltaV += stageDeltaVs[j];
+			}
+			return deltaV <= targetDeltaV;
+		}
+	}
+
+	/**
+	 * Evaluates one stage with the stages above it fixed, and keeps it as
+	 * part of the current design if it's allowed.
+	 *
+	 * @param i					the stage index
+	 * @param upperMass			the mass carried by the stage in kg
+	 * @param tankIndex			the grid index of each stack's tank
+	 * @return					the outcome of the checks
+	 */
+	private Check fixStage(int i, double upperMass, long tankIndex) {
+		StageKernel kernel = kernels[i];
+		boolean topStage = i == engines.length - 1;
+		stats.countCandidate(i);
+
+		double tankMass = tankIndex * massIncrements;
+		double mass = kernel.getMass(upperMass, tankMass);
+		double twr = kernel.getMinTWR(mass);
+
+		Check check = Check.VALID;
+		if (twr < targetTWRs[i]) {
+			check = Check.BELOW_TARGET_TWR;
+		} else if (i > 0 && !topStage && twr < stageTWRs[i + 1]) {
+			check = Check.BELOW_UPPER_TWR;
+		} else if (!topStage && !isTankSizeRatioValid(tankMasses[i + 1], tankMass, stackSizes[i])) {
+			check = Check.OUTSIDE_TANK_SIZE_RATIO;
+		}
+		if (check != Check.VALID) {
+			stats.countRejection(i, check.rejection);
+			return check;
+		}
+		stats.countAccepted(i);
+
+		tankIndices[i] = tankIndex;
+		tankMasses[i] = tankMass;
+		stageMasses[i] = mass;
+		stageTWRs[i] = twr;
+		stageDeltaVs[i] = kernel.getDeltaV(mass, kernel.getDryMass(upperMass, tankMass));
+		return Check.VALID;
+	}
+
+	/**
+	 * Whether any design beneath the fixed stages could beat the best payload
+	 * fraction so far, going by the lightest first stage that could carry
+	 * them.
+	 *
+	 * @param i					the lowest fixed stage
+	 * @return					whether the stages beneath can improve
+	 */
+	private boolean canImprove(int i) {
+		double deltaV = 0;
+		for (int j = i; j < engines.length; j++) {
+			deltaV += stageDeltaVs[j];
+		}
+		double remainingDeltaV = Math.max(targetDeltaV - deltaV, 0);
+		double minMass = getMinFirstStageMass(i, stageMasses[i], remainingDeltaV) * BOUND_TOLERANCE;
+		if (minMass > maxFirstStageMass) return false;
+
+		return 100.0 * payloadMass / minMass > getBoundPayloadFraction();
+	}
+
+	/**
+	 * Returns a lower bound on the first stage's mass, with the stages
+	 * beneath a fixed one still open.
+	 * <p>
+	 * A stage carrying m with mass ratio x weighs x * (m + d) / (1 + q - q * x),
+	 * with q the tank's dry-to-propellant ratio and d its engines' dry mass
+	 * less q times their own propellant, the tank dry mass that propellant
+	 * saves. When only the first stage is open, that's used as is. Otherwise
+	 * every open stage multiplies the mass it carries by at least
+	 * exp(deltaV / ((1 - r) * c)), as its growth factor is convex in delta-V,
+	 * and adds at least d as long as d isn't negative. So the lightest first
+	 * stage that reaches the remaining delta-V uses the best effective exhaust
+	 * velocity of all open stages for all of it. If some d is negative, only
+	 * the engines' masses are added.
+	 *
+	 * @param i					the lowest fixed stage
+	 * @param upperMass			the mass of the lowest fixed stage in kg
+	 * @param remainingDeltaV	the delta-V the open stages still need in m/s
+	 * @return					the mass in kg, or infinity if the open
+	 * 							stages can't reach the delta-V
+	 */
+	private double getMinFirstStageMass(int i, double upperMass, double remainingDeltaV) {
+		if (remainingDeltaV >= boundDeltaVs[i - 1]) return Double.POSITIVE_INFINITY;
+		if (i == 1) {
+			StageKernel kernel = kernels[0];
+			double massRatio = Math.exp(remainingDeltaV / (kernel.getIsp() * Thrustable.KERBIN_GRAVITY));
+			double tankRatio = kernel.getTankDryMassRatio() / (1 - kernel.getTankDryMassRatio());
+			double denominator = 1 + tankRatio - tankRatio * massRatio;
+			if (denominator <= 0) return Double.POSITIVE_INFINITY;
+			double mass = (upperMass + boundEngineDryMasses[0]) * massRatio / denominator;
+			return Math.max(mass, upperMass + boundEngineMasses[0]);
+		} else if (boundGrowthHolds[i - 1]) {
+			return upperMass * Math.exp(remainingDeltaV / boundExhaustVelocities[i - 1]) + boundEngineDryMasses[i - 1];
+		}
+		return upperMass + boundEngineMasses[i - 1];
+	}
+
+	/**
+	 * Returns the payload fraction a design must beat to be kept, the best
+	 * so far or, when more designs are kept, the worst of them once there
+	 * are enough. Any design may join the Pareto front, when it's kept.
+	 *
+	 * @return					the payload fraction in percent
+	 */
+	private double getBoundPayloadFraction() {
+		if (paretoFront != null) return 0;
+		return designs == null ? bestPayloadFraction : designs.getThreshold();
+	}
+
+	/**
+	 * Evaluates the design with every stage fixed.
+	 */
+	private void evaluate() {
+		stats.countDesign();
+		double deltaV = 0;
+		for (int i = 0; i < engines.length; i++) {
+			deltaV += stageDeltaVs[i];
+		}
+
+		if (deltaV <= targetDeltaV) {
+			stats.countRejection(0, Rejection.BELOW_TARGET_DELTA_V);
+			if (refining) nearDesigns.offer(deltaV, deltaV, tankMasses);
+		} else {
+			if (anyDesign) {
+				designFound = true;
+				return;
+			}
+			double payloadFraction = 100.0 * payloadMass / stageMasses[0];
+			if (refining) {
+				levelDesigns.offer(payloadFraction, deltaV, tankMasses);
+				return;
+			}
+			if (designs != null) designs.offer(payloadFraction, deltaV, tankMasses);
+			if (paretoFront != null) paretoFront.offer(payloadFraction, deltaV, stageTWRs[0], tankMasses);
+			if (payloadFraction > bestPayloadFraction) {
+				listener.onImprovement(stats.addImprovement(payloadMass, tankMasses, deltaV, payloadFraction));
+				keepBest(payloadFraction);
+			} else if (payloadFraction == bestPayloadFraction && isBeforeBest()) {
+				// The exhaustive walk keeps the first of equal designs, so a
+				// search probing out of order keeps the same one.
+				keepBest(payloadFraction);
+			}
+		}
+	}
+
+	private void keepBest(double payloadFraction) {
+		System.arraycopy(tankMasses, 0, bestTankMasses, 0, tankMasses.length);
+		System.arraycopy(tankIndices, 0, bestTankIndices, 0, tankIndices.length);
+		bestPayloadFraction = payloadFraction;
+		bestFound = true;
+	}
+
+	/**
+	 * Whether the design comes before the best one in the exhaustive walk,
+	 * which walks the top stage's tank outermost and each tank upwards.
+	 *
+	 * @return					whether the design comes first
+	 */
+	private boolean isBeforeBest() {
+		if (!bestFound) return false;
+		for (int i = tankIndices.length - 1; i >= 0; i--) {
+			if (tankIndices[i] != bestTankIndices[i]) return tankIndices[i] < bestTankIndices[i];
+		}
+		return false;
+	}
+
+	/**
+	 * Whether the upper tank is within the allowed ratio of each lower stack's
+	 * tank.
+	 *
+	 * @param upperTankMass		the tank mass of the upper stage in kg
+	 * @param tankMass			the tank mass of each lower stack in kg
+	 * @param stackSize			the number of lower stacks
+	 * @return					whether the ratio is allowed
+	 */
+	private static boolean isTankSizeRatioValid(double upperTankMass, double tankMass, int stackSize) {
+		double tankSizeRatio = upperTankMass / (tankMass / stackSize);
+		return tankSizeRatio > MIN_TANK_SIZE_RATIO && tankSizeRatio < MAX_TANK_SIZE_RATIO;
+	}
+
+	/**
+	 * Builds the rocket objects of a design of the current payload. Only
+	 * called once the payload is searched, the search itself runs on the
+	 * stage kernels.
+	 *
+	 * @param tankMasses	the tank mass of each stack, first stage first
+	 * @return				the rocket
+	 */
+	private Rocket buildRocket(double[] tankMasses) {
+		Rocket.Builder rocketBuilder = new Rocket.Builder().setIspContext(ispContext);
+		Massive payload = new Payload(payloadMass);
+		for (int i = engines.length - 1; i >= 0; i--) {
+			ProceduralTank tank = new ProceduralTank(tankMasses[i], engines[i].getPropellants());
+			Stage stage = new Stage(payload, new Stack(tank, engines[i]), stackSizes[i]);
+			rocketBuilder.addStage(stage);
+			payload = stage;
+		}
+		return rocketBuilder.build();
+	}
+
+	/**
+	 * A limit on one stage's tank that holds up to some tank mass only.
+	 */
+	private enum Limit {
+		/**
+		 * The stage reaches its target TWR and the TWR of the stage above.
+		 */
+		TWR,
+
+		/**
+		 * The tank is too small for the tank size ratio.
+		 */
+		BELOW_TANK_SIZE_RATIO,
+
+		/**
+		 * The tank isn't too large for the tank size ratio.
+		 */
+		TANK_SIZE_RATIO,
+
+		/**
+		 * The design falls short of the target delta-V.
+		 */
+		BELOW_TARGET_DELTA_V
+	}
+
+	/**
+	 * The outcome of checking one stage.
+	 */
+	private enum Check {
+		VALID(null),
+		BELOW_TARGET_TWR(Rejection.BELOW_TARGET_TWR),
+		BELOW_UPPER_TWR(Rejection.BELOW_UPPER_TWR),
+		OUTSIDE_TANK_SIZE_RATIO(Rejection.OUTSIDE_TANK_SIZE_RATIO);
+
+		private final Rejection rejection;
+
+		private Check(Rejection rejection) {
+			this.rejection = rejection;
+		}
+	}
+}
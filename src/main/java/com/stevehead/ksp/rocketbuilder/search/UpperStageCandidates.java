@@ -0,0 +1,209 @@
+package com.stevehead.ksp.rocketbuilder.search;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.stevehead.ksp.rocketbuilder.interfaces.IspContext;
+import com.stevehead.ksp.rocketbuilder.interfaces.Thrustable;
+
+/**
+ * UpperStageCandidates holds the tank masses of the top stage that reach its
+ * target TWR, for the payloads asked for most recently, along with the
+ * stage's mass, TWR and delta-V at each of them. The top stage only depends on its
+ * own engine and the payload, so searches that share the top stage engine,
+ * such as the pairs of an engine sweep, share its candidates instead of
+ * walking them again.
+ * <p>
+ * The settings of the top stage are taken from the first search that uses
+ * the candidates, and any other search must use the same ones. The
+ * candidates are safe to share between threads, and once built a payload's
+ * candidates are never changed. Only up to a capacity of payloads are held,
+ * the least recently used one is dropped for a new one past that, and is
+ * walked again if it's asked for once more.
+ * <p>
+ * The payloads are keyed on their mass. Each search works a payload out
+ * from its own grid index, so the same payload always has the same mass,
+ * but the payload grids of searches with another maximum payload are offset
+ * from each other, so there is no grid index common to all of them.
+ *
+ * @author Steve Johnson
+ */
+public final class UpperStageCandidates {
+	/**
+	 * The number of payloads held by default.
+	 */
+	public static final int DEFAULT_CAPACITY = 256;
+
+	/**
+	 * The engine of the top stage.
+	 */
+	private final Thrustable engine;
+
+	/**
+	 * The settings of the top stage, taken from the first search.
+	 */
+	private StageKernel kernel;
+	private IspContext ispContext;
+	private int stackSize;
+	private double targetTWR;
+	private double massIncrements;
+
+	/**
+	 * The candidates of each payload mass, the least recently used first.
+	 * Guarded by itself.
+	 */
+	private final Map<Double, Candidates> payloadCandidates;
+
+	/**
+	 * @param engine		the engine of the top stage
+	 */
+	public UpperStageCandidates(Thrustable engine) {
+		this(engine, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param engine		the engine of the top stage
+	 * @param capacity		the most payloads held at once
+	 */
+	public UpperStageCandidates(Thrustable engine, final int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("The candidates of one payload must be held at least.");
+		}
+		this.engine = engine;
+		this.payloadCandidates = new LinkedHashMap<Double, Candidates>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Double, Candidates> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	public Thrustable getEngine() {
+		return engine;
+	}
+
+	/**
+	 * @return		the number of payloads with candidates
+	 */
+	public int size() {
+		synchronized (payloadCandidates) {
+			return payloadCandidates.size();
+		}
+	}
+
+	/**
+	 * Drops the candidates of every payload.
+	 */
+	public void clear() {
+		synchronized (payloadCandidates) {
+			payloadCandidates.clear();
+		}
+	}
+
+	/**
+	 * Takes the settings of the top stage from a search, or checks them
+	 * against the ones taken already.
+	 *
+	 * @param engine			the engine of the top stage
+	 * @param stackSize			the number of stacks of the top stage
+	 * @param ispContext		the Isp scaler of the search
+	 * @param targetTWR			the minimum starting TWR of the top stage
+	 * @param massIncrements	the mass grid step in kg
+	 */
+	synchronized void bind(Thrustable engine, int stackSize, IspContext ispContext, double targetTWR, double massIncrements) {
+		if (engine != this.engine) {
+			throw new IllegalArgumentException("The candidates are of another top stage engine.");
+		}
+		if (kernel == null) {
+			this.kernel = new StageKernel(engine, stackSize, ispContext);
+			this.ispContext = ispContext;
+			this.stackSize = stackSize;
+			this.targetTWR = targetTWR;
+			this.massIncrements = massIncrements;
+		} else if (stackSize != this.stackSize || !ispContext.equals(this.ispContext)
+				|| Double.compare(targetTWR, this.targetTWR) != 0 || Double.compare(massIncrements, this.massIncrements) != 0) {
+			throw new IllegalArgumentException("The candidates were built with other top stage settings.");
+		}
+	}
+
+	/**
+	 * Returns the candidates of a payload, walking them on first use.
+	 *
+	 * @param payloadMass		the payload mass in kg
+	 * @return					the candidates
+	 */
+	Candidates get(double payloadMass) {
+		Candidates candidates;
+		synchronized (payloadCandidates) {
+			candidates = payloadCandidates.get(payloadMass);
+		}
+		if (candidates == null) {
+			// Walked outside the lock, so other payloads aren't held up.
+			candidates = walk(payloadMass);
+			synchronized (payloadCandidates) {
+				Candidates existing = payloadCandidates.get(payloadMass);
+				if (existing != null) {
+					candidates = existing;
+				} else {
+					payloadCandidates.put(payloadMass, candidates);
+				}
+			}
+		}
+		return candidates;
+	}
+
+	/**
+	 * Walks the tank masses of the top stage on the same grid indices as the
+	 * staged search, up to the first one below the target TWR.
+	 */
+	private Candidates walk(double payloadMass) {
+		StageKernel kernel;
+		double targetTWR;
+		double massIncrements;
+		synchronized (this) {
+			kernel = this.kernel;
+			targetTWR = this.targetTWR;
+			massIncrements = this.massIncrements;
+		}
+
+		int count = 0;
+		while (kernel.getMinTWR(kernel.getMass(payloadMass, (count + 1) * massIncrements)) >= targetTWR) {
+			count++;
+		}
+
+		Candidates candidates = new Candidates(count);
+		for (int i = 0; i < count; i++) {
+			double tankMass = (i + 1) * massIncrements;
+			double mass = kernel.getMass(payloadMass, tankMass);
+			candidates.tankMasses[i] = tankMass;
+			candidates.masses[i] = mass;
+			candidates.twrs[i] = kernel.getMinTWR(mass);
+			candidates.deltaVs[i] = kernel.getDeltaV(mass, kernel.getDryMass(payloadMass, tankMass));
+		}
+		return candidates;
+	}
+
+	/**
+	 * The top stage candidates of one payload, lightest tank first. The tank
+	 * of candidate i is on grid index i + 1.
+	 */
+	static final class Candidates {
+		final double[] tankMasses;
+		final double[] masses;
+		final double[] twrs;
+		final double[] deltaVs;
+
+		private Candidates(int count) {
+			this.tankMasses = new double[count];
+			this.masses = new double[count];
+			this.twrs = new double[count];
+			this.deltaVs = new double[count];
+		}
+
+		int size() {
+			return tankMasses.length;
+		}
+	}
+}
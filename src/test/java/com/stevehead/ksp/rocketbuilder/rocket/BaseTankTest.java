@@ -74,6 +74,24 @@ public class BaseTankTest {
 		assertEquals(TestTank.Type.UNKNOWN, TestTank.determineTankType(Propellant.LIQUID_FUEL, Propellant.XENON_GAS));
 	}
 	
+	@Test
+	public void testCombinePropellantMasks() {
+		BaseTank testTank2 = new TestTank(100, 200, Propellant.XENON_GAS, Propellant.OXIDIZER);
+		int expectedMask = Propellant.getMask(Propellant.LIQUID_FUEL, Propellant.OXIDIZER, Propellant.XENON_GAS);
+		
+		assertEquals(expectedMask, TestTank.combinePropellantMasks(testTank, testTank2));
+		assertEquals(TestTank.Type.UNKNOWN, TestTank.getTankType(expectedMask));
+	}
+	
+	@Test
+	public void testPropellantMaskTank() {
+		BaseTank maskTank = new TestTank(dryMass, mass, Propellant.getMask(Propellant.OXIDIZER, Propellant.LIQUID_FUEL));
+		
+		assertEquals(TestTank.Type.LIQUID_FUEL_AND_OXIDIZER, maskTank.getType());
+		assertArrayEquals(new Propellant[]{Propellant.LIQUID_FUEL, Propellant.OXIDIZER}, maskTank.getPropellants());
+		assertEquals(testTank.getPropellantMask(), maskTank.getPropellantMask());
+	}
+	
 	@Test
 	public void testNoProvidedPropellantsTank() {
 		assertEquals(TestTank.Type.LIQUID_FUEL_AND_OXIDIZER, testTank.getType());
@@ -83,5 +101,9 @@ public class BaseTankTest {
 		public TestTank(double dryMass, double mass, Propellant... propellants) {
 			super(dryMass, mass, propellants);
 		}
+		
+		public TestTank(double dryMass, double mass, int propellantMask) {
+			super(dryMass, mass, propellantMask);
+		}
 	}
 }
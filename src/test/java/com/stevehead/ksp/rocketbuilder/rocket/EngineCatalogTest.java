@@ -0,0 +1,109 @@
+package com.stevehead.ksp.rocketbuilder.rocket;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.stevehead.ksp.rocketbuilder.game.Mod;
+
+public class EngineCatalogTest {
+	
+	private EngineCatalog testCatalog;
+	private List<Engine> allEngines;
+	
+	@Before
+	public void setUp() throws Exception {
+		testCatalog = EngineCatalog.getPreDefined();
+		allEngines = new ArrayList<Engine>();
+		for (Engine.PreDefined engine : Engine.PreDefined.values()) {
+			allEngines.add(engine.toEngine());
+		}
+	}
+	
+	@Test
+	public void testGetEngines() {
+		assertEquals(allEngines, testCatalog.getEngines());
+		assertEquals(allEngines.size(), testCatalog.size());
+	}
+	
+	@Test
+	public void testGetEnginesBySize() {
+		for (double size : testCatalog.getSizes()) {
+			List<Engine> expected = new ArrayList<Engine>();
+			for (Engine engine : allEngines) {
+				if (engine.getSize() == size) expected.add(engine);
+			}
+			assertEquals(expected, testCatalog.getEngines(size));
+		}
+		assertTrue(testCatalog.getEngines(1.875).isEmpty());
+	}
+	
+	@Test
+	public void testGetEnginesByMod() {
+		for (Mod mod : Mod.values()) {
+			List<Engine> expected = new ArrayList<Engine>();
+			for (Engine engine : allEngines) {
+				if (engine.getMod() == mod) expected.add(engine);
+			}
+			assertEquals(expected, testCatalog.getEngines(mod));
+		}
+	}
+	
+	@Test
+	public void testGetEnginesBySizeAndMod() {
+		List<Engine> expected = new ArrayList<Engine>();
+		for (Engine engine : allEngines) {
+			if (engine.getSize() == 2.5 && engine.getMod() == Mod.NOVAPUNCH) expected.add(engine);
+		}
+		assertFalse(expected.isEmpty());
+		assertEquals(expected, testCatalog.getEngines(2.5, Mod.NOVAPUNCH));
+		assertTrue(testCatalog.getEngines(2.5, Mod.KSPX).isEmpty());
+	}
+	
+	@Test
+	public void testGetEnginesByThrust() {
+		double minThrust = 200000;
+		double maxThrust = 1500000;
+		List<Engine> engines = testCatalog.getEnginesByThrust(minThrust, maxThrust);
+		int expected = 0;
+		for (Engine engine : allEngines) {
+			if (engine.getThrust() >= minThrust && engine.getThrust() <= maxThrust) expected++;
+		}
+		assertEquals(expected, engines.size());
+		for (int i = 1; i < engines.size(); i++) {
+			assertTrue(engines.get(i - 1).getThrust() <= engines.get(i).getThrust());
+		}
+		assertTrue(testCatalog.getEnginesByThrust(maxThrust, minThrust).isEmpty());
+	}
+	
+	@Test
+	public void testGetSizes() {
+		double[] sizes = testCatalog.getSizes();
+		for (int i = 1; i < sizes.length; i++) {
+			assertTrue(sizes[i - 1] < sizes[i]);
+		}
+	}
+	
+	@Test
+	public void testSharedViews() {
+		assertSame(testCatalog.getEngines(1.25), testCatalog.getEngines(1.25));
+		assertSame(testCatalog.getEngines(Mod.STOCK), testCatalog.getEngines(Mod.STOCK));
+	}
+	
+	@Test(expected = UnsupportedOperationException.class)
+	public void testReadOnly() {
+		testCatalog.getEngines(1.25).clear();
+	}
+	
+	@Test
+	public void testEngineGetEngines() {
+		assertArrayEquals(testCatalog.getEngines(1.25).toArray(), Engine.getEngines(1.25));
+		assertArrayEquals(testCatalog.getEngines(Mod.NOVAPUNCH).toArray(), Engine.getEngines(Mod.NOVAPUNCH));
+		assertEquals(allEngines.size(), Engine.getEngines(Mod.STOCK, Mod.NOVAPUNCH).length);
+		assertEquals(testCatalog.getEngines(1.25).size() + testCatalog.getEngines(2.5).size(), Engine.getEngines(1.25, 2.5).length);
+	}
+}
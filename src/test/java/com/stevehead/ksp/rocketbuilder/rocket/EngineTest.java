@@ -8,6 +8,7 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import com.stevehead.ksp.rocketbuilder.game.Mod;
+import com.stevehead.ksp.rocketbuilder.interfaces.IspContext;
 
 public class EngineTest {
 	
@@ -74,6 +75,14 @@ public class EngineTest {
 		assertEquals(expectedDeltaV, testEngine.getDeltaV(), 1e-7);
 	}
 	
+	@Test
+	public void testGetDeltaVWithIspContext() {
+		Engine.setIspScaler(0.5);
+		double newIspScaler = 0.81;
+		double expectedDeltaV = Engine.KERBIN_GRAVITY * isp * newIspScaler * Math.log(mass / dryMass);
+		assertEquals(expectedDeltaV, testEngine.getDeltaV(new IspContext(newIspScaler)), 1e-7);
+	}
+	
 	@Test
 	public void testTweakScaleDifferentScale() {
 		assertNotSame(testEngine, testTweakScaleEngine);
@@ -87,6 +96,33 @@ public class EngineTest {
 		assertEquals(testEngine.getSize(), testSameScale.getSize(), 1e-7);
 	}
 	
+	@Test
+	public void testTweakScaleCached() {
+		assertSame(testTweakScaleEngine, testEngine.tweakScale(tweakScaleSize));
+		assertSame(Engine.PreDefined.LV_T30_LIQUID_FUEL_ENGINE.tweakScale(2.5), Engine.PreDefined.LV_T30_LIQUID_FUEL_ENGINE.tweakScale(2.5));
+	}
+	
+	@Test
+	public void testTweakScaleName() {
+		assertEquals(name + " (TweakScale " + tweakScaleSize + "m)", testTweakScaleEngine.getName());
+		assertEquals("Engine: " + testTweakScaleEngine.getName(), testTweakScaleEngine.toString());
+	}
+	
+	@Test
+	public void testTweakScaleIspAfterScale() {
+		double newIspScaler = 0.81;
+		Engine.setIspScaler(newIspScaler);
+		assertEquals(isp * newIspScaler, testEngine.tweakScale(5.0).getIsp(), 1e-7);
+	}
+	
+	@Test
+	public void testTweakScaleOffStandardSize() {
+		double scale = 1.5;
+		double ratio = scale / size;
+		assertEquals(dryMass * Math.pow(ratio, Engine.TWEAKSCALE_MASS_EXPONENT), testEngine.tweakScale(scale).getDryMass(), 0);
+		assertEquals(thrust * Math.pow(ratio, Engine.TWEAKSCALE_THRUST_EXPONENT), testEngine.tweakScale(scale).getThrust(), 0);
+	}
+	
 	@Test
 	public void testTweakScaleDryMass() {
 		double ratio = tweakScaleSize / size;
@@ -0,0 +1,86 @@
+package com.stevehead.ksp.rocketbuilder.rocket;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.stevehead.ksp.rocketbuilder.interfaces.IspContext;
+
+public class PackedEnginesTest {
+	
+	private PackedEngines testEngines;
+	
+	@Before
+	public void setUp() throws Exception {
+		testEngines = PackedEngines.getPreDefined();
+	}
+	
+	@Test
+	public void testRowsMatchEngines() {
+		assertEquals(Engine.PreDefined.values().length, testEngines.size());
+		for (Engine.PreDefined preDefined : Engine.PreDefined.values()) {
+			int row = preDefined.ordinal();
+			Engine engine = preDefined.toEngine();
+			assertSame(engine, testEngines.getEngine(row));
+			assertEquals(engine.getMod(), testEngines.getMod(row));
+			assertEquals(engine.getDryMass(), testEngines.getDryMass(row), 0);
+			assertEquals(engine.getMass(), testEngines.getMass(row), 0);
+			assertEquals(engine.getThrust(), testEngines.getThrust(row), 0);
+			assertEquals(engine.getIsp(IspContext.UNSCALED), testEngines.getIsp(row), 0);
+			assertEquals(engine.getSize(), testEngines.getSize(row), 0);
+			assertEquals(Propellant.getMask(engine.getPropellants()), testEngines.getPropellantMask(row));
+		}
+	}
+	
+	@Test
+	public void testGetScaledIsp() {
+		IspContext ispContext = new IspContext(0.81);
+		int row = Engine.PreDefined.LV_909_LIQUID_FUEL_ENGINE.ordinal();
+		assertEquals(Engine.PreDefined.LV_909_LIQUID_FUEL_ENGINE.getIsp(ispContext), testEngines.getIsp(row, ispContext), 0);
+	}
+	
+	@Test
+	public void testSelectBySize() {
+		int[] rows = testEngines.selectBySize(2.5);
+		assertEquals(EngineCatalog.getPreDefined().getEngines(2.5).size(), rows.length);
+		for (int i = 0; i < rows.length; i++) {
+			assertSame(EngineCatalog.getPreDefined().getEngines(2.5).get(i), testEngines.getEngine(rows[i]));
+		}
+	}
+	
+	@Test
+	public void testSelectByThrust() {
+		int[] rows = testEngines.selectByThrust(200000, 1500000);
+		assertEquals(EngineCatalog.getPreDefined().getEnginesByThrust(200000, 1500000).size(), rows.length);
+	}
+	
+	@Test
+	public void testSelectByPropellants() {
+		int mask = Propellant.getMask(Propellant.LIQUID_FUEL, Propellant.OXIDIZER);
+		assertEquals(testEngines.size(), testEngines.selectByPropellants(mask).length);
+		assertEquals(0, testEngines.selectByPropellants(Propellant.XENON_GAS.getMask()).length);
+	}
+	
+	@Test
+	public void testRankByIsp() {
+		int[] rows = testEngines.rankByIsp(testEngines.selectBySize(1.25));
+		assertEquals(testEngines.selectBySize(1.25).length, rows.length);
+		for (int i = 1; i < rows.length; i++) {
+			double previous = testEngines.getIsp(rows[i - 1]);
+			double current = testEngines.getIsp(rows[i]);
+			assertTrue(previous >= current);
+			if (previous == current) assertTrue(rows[i - 1] < rows[i]);
+		}
+	}
+	
+	@Test
+	public void testRankByTWR() {
+		int[] rows = testEngines.rankByTWR(testEngines.selectBySize(2.5));
+		for (int i = 1; i < rows.length; i++) {
+			double previous = testEngines.getThrust(rows[i - 1]) / testEngines.getMass(rows[i - 1]);
+			double current = testEngines.getThrust(rows[i]) / testEngines.getMass(rows[i]);
+			assertTrue(previous >= current);
+		}
+	}
+}
@@ -29,5 +29,18 @@ public class ProceduralTankTest {
 		double expectedDryMassValue = ProceduralTank.PROCEDURAL_TANK_MP_MASS_RATIO * monopropellantTankMass;
 		assertEquals(expectedDryMassValue, monopropellantTank.getDryMass(), 1e-7);
 	}
+	
+	@Test
+	public void testDryMassRatioByMask() {
+		assertEquals(ProceduralTank.PROCEDURAL_TANK_LF_OX_MASS_RATIO,
+				ProceduralTank.getDryMassRatio(Propellant.getMask(Propellant.LIQUID_FUEL, Propellant.OXIDIZER)), 0);
+		assertEquals(ProceduralTank.PROCEDURAL_TANK_MP_MASS_RATIO,
+				ProceduralTank.getDryMassRatio(Propellant.MONOPROPELLANT.getMask()), 0);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnsupportedDryMassRatio() {
+		ProceduralTank.getDryMassRatio(Propellant.XENON_GAS.getMask());
+	}
 
 }
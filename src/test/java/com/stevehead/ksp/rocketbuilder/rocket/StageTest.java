@@ -41,5 +41,39 @@ public class StageTest {
 		double expectedDeltaV = Stage.KERBIN_GRAVITY * testEngine.getIsp() * Math.log(expectedMass / expectedDryMass);
 		assertEquals(expectedDeltaV, testStage.getDeltaV(), 1e-7);
 	}
+	
+	@Test
+	public void testStackGroupMatchesDuplicates() {
+		Stack stack = new Stack(new FuelTank(tankDryMass, tankMass), testEngine);
+		Stage groupStage = new Stage(new Payload(payloadMass), stack, 6);
+		Stage duplicateStage = new Stage(new Payload(payloadMass), stack.duplicate(6));
+		
+		assertEquals(1, duplicateStage.getGroups().length);
+		assertEquals(6, duplicateStage.getStackCount());
+		assertEquals(duplicateStage.getMass(), groupStage.getMass(), 1e-7);
+		assertEquals(duplicateStage.getDryMass(), groupStage.getDryMass(), 1e-7);
+		assertEquals(duplicateStage.getThrust(), groupStage.getThrust(), 1e-7);
+		assertEquals(duplicateStage.getIsp(), groupStage.getIsp(), 1e-9);
+	}
+	
+	@Test
+	public void testMixedStackGroups() {
+		Stack core = new Stack(new FuelTank(tankDryMass, tankMass), Engine.PreDefined.ROCKOMAX_SKIPPER_LIQUID_ENGINE);
+		Stack radial = new Stack(new FuelTank(tankDryMass / 2, tankMass / 2), testEngine);
+		Stage groupStage = new Stage(new Payload(payloadMass), new StackGroup(core, 1), new StackGroup(radial, 4));
+		Stage listedStage = new Stage(new Payload(payloadMass), radial, core, radial, radial, radial);
+		
+		assertEquals(2, listedStage.getGroups().length);
+		assertEquals(5, groupStage.getStackCount());
+		assertEquals(listedStage.getMass(), groupStage.getMass(), 1e-7);
+		assertEquals(listedStage.getDryMass(), groupStage.getDryMass(), 1e-7);
+		assertEquals(core.getThrust() + 4 * radial.getThrust(), groupStage.getThrust(), 1e-7);
+		assertEquals(listedStage.getIsp(), groupStage.getIsp(), 1e-9);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testEmptyStackGroup() {
+		new StackGroup(new Stack(new FuelTank(tankDryMass, tankMass), testEngine), 0).getClass();
+	}
 
 }
@@ -0,0 +1,67 @@
+package com.stevehead.ksp.rocketbuilder.search;
+
+import static org.junit.Assert.*;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.stevehead.ksp.rocketbuilder.rocket.Engine;
+
+public class AnalyticStagingTest {
+
+	private static AnalyticStaging testStaging;
+	private static StageKernel[] testKernels;
+	private static final double targetDeltaV = 3800;
+	private static final double payloadMass = 500;
+	private static final double[] targetTWRs = {1.2, 2.0};
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		Engine.setIspScaler(1);
+		testKernels = new StageKernel[] {
+			new StageKernel(Engine.PreDefined.LV_T30_LIQUID_FUEL_ENGINE),
+			new StageKernel(Engine.PreDefined.LV_909_LIQUID_FUEL_ENGINE)
+		};
+		testStaging = new AnalyticStaging(targetDeltaV, targetTWRs, testKernels);
+	}
+
+	@Test
+	public void testReachesTargetDeltaV() {
+		double[] tankMasses = testStaging.solve(payloadMass);
+		assertNotNull(tankMasses);
+
+		double upperMass = payloadMass;
+		double deltaV = 0;
+		for (int i = tankMasses.length - 1; i >= 0; i--) {
+			double mass = testKernels[i].getMass(upperMass, tankMasses[i]);
+			deltaV += testKernels[i].getDeltaV(mass, testKernels[i].getDryMass(upperMass, tankMasses[i]));
+			upperMass = mass;
+		}
+		assertEquals(targetDeltaV, deltaV, 1e-3);
+	}
+
+	@Test
+	public void testMeetsTargetTWRs() {
+		double[] tankMasses = testStaging.solve(payloadMass);
+
+		double upperMass = payloadMass;
+		for (int i = tankMasses.length - 1; i >= 0; i--) {
+			double mass = testKernels[i].getMass(upperMass, tankMasses[i]);
+			assertTrue(testKernels[i].getMinTWR(mass) >= targetTWRs[i] - 1e-9);
+			upperMass = mass;
+		}
+	}
+
+	@Test
+	public void testUnreachableTarget() {
+		assertNull(testStaging.solve(50000));
+	}
+
+	@Test
+	public void testSearchReachesTargetDeltaV() {
+		StagedSearch search = new StagedSearch(targetDeltaV, 50, targetTWRs, 1,
+				Engine.PreDefined.LV_T30_LIQUID_FUEL_ENGINE, Engine.PreDefined.LV_909_LIQUID_FUEL_ENGINE);
+		search.setStrategy(SearchStrategy.ANALYTIC);
+		assertTrue(search.run(20000).getTotalDeltaV() > targetDeltaV);
+	}
+}
@@ -0,0 +1,51 @@
+package com.stevehead.ksp.rocketbuilder.search;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class DesignHeapTest {
+
+	@Test
+	public void testKeepsBestDesigns() {
+		DesignHeap heap = new DesignHeap(3, 2);
+		double[] fractions = {4, 9, 1, 7, 3, 8};
+		for (double fraction : fractions) {
+			heap.offer(fraction, 100 * fraction, new double[] {fraction, -fraction});
+		}
+		assertEquals(3, heap.size());
+		assertEquals(7, heap.getThreshold(), 0);
+		
+		int[] slots = heap.getSlots();
+		double[] expectedFractions = {9, 8, 7};
+		for (int i = 0; i < slots.length; i++) {
+			assertEquals(expectedFractions[i], heap.getPayloadFraction(slots[i]), 0);
+			assertEquals(100 * expectedFractions[i], heap.getDeltaV(slots[i]), 0);
+			assertArrayEquals(new double[] {expectedFractions[i], -expectedFractions[i]}, heap.getTankMasses(slots[i]), 0);
+		}
+	}
+
+	@Test
+	public void testEqualFractionsKeepFirstOffered() {
+		DesignHeap heap = new DesignHeap(2, 1);
+		assertTrue(heap.offer(5, 0, new double[] {1}));
+		assertTrue(heap.offer(5, 0, new double[] {2}));
+		assertFalse(heap.offer(5, 0, new double[] {3}));
+		
+		int[] slots = heap.getSlots();
+		assertEquals(1, heap.getTankMasses(slots[0])[0], 0);
+		assertEquals(2, heap.getTankMasses(slots[1])[0], 0);
+	}
+
+	@Test
+	public void testThresholdUntilFull() {
+		DesignHeap heap = new DesignHeap(2, 1);
+		heap.offer(5, 0, new double[] {1});
+		assertEquals(0, heap.getThreshold(), 0);
+		heap.offer(6, 0, new double[] {1});
+		assertEquals(5, heap.getThreshold(), 0);
+		heap.clear();
+		assertEquals(0, heap.size());
+		assertEquals(0, heap.getThreshold(), 0);
+	}
+}
@@ -0,0 +1,39 @@
+package com.stevehead.ksp.rocketbuilder.search;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.stevehead.ksp.rocketbuilder.game.Mod;
+import com.stevehead.ksp.rocketbuilder.interfaces.IspContext;
+import com.stevehead.ksp.rocketbuilder.rocket.Engine;
+
+public class EngineClassesTest {
+
+	private static final Engine lvT30 = Engine.PreDefined.LV_T30_LIQUID_FUEL_ENGINE.toEngine();
+	private static final Engine lv909 = Engine.PreDefined.LV_909_LIQUID_FUEL_ENGINE.toEngine();
+	private static final Engine lvT30Copy = new Engine("LV-T30 Copy", Mod.STOCK,
+			lvT30.getDryMass(), lvT30.getMass(), lvT30.getThrust(), lvT30.getIsp(IspContext.UNSCALED), lvT30.getSize());
+
+	@Test
+	public void testEquivalentEngines() {
+		EngineClasses classes = new EngineClasses(lvT30, lv909, lvT30Copy);
+		assertEquals(3, classes.size());
+		assertEquals(2, classes.getClassCount());
+		assertTrue(classes.isRepresentative(0));
+		assertTrue(classes.isRepresentative(1));
+		assertFalse(classes.isRepresentative(2));
+		assertEquals(0, classes.getRepresentative(2));
+		assertEquals(2, classes.getMembers(2).size());
+		assertSame(lvT30, classes.getMembers(2).get(0));
+		assertSame(lvT30Copy, classes.getMembers(2).get(1));
+	}
+
+	@Test
+	public void testScaledEnginesAreKept() {
+		Engine doubled = new Engine("Doubled LV-T30", Mod.STOCK,
+				2 * lvT30.getDryMass(), 2 * lvT30.getMass(), 2 * lvT30.getThrust(),
+				lvT30.getIsp(IspContext.UNSCALED), lvT30.getSize());
+		assertEquals(2, new EngineClasses(lvT30, doubled).getClassCount());
+	}
+}
@@ -0,0 +1,55 @@
+package com.stevehead.ksp.rocketbuilder.search;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.stevehead.ksp.rocketbuilder.rocket.Engine;
+
+public class EnginePruningTest {
+
+	private static final Engine lvT30 = Engine.PreDefined.LV_T30_LIQUID_FUEL_ENGINE.toEngine();
+	private static final Engine lvT45 = Engine.PreDefined.LV_T45_LIQUID_FUEL_ENGINE.toEngine();
+	private static final Engine lv909 = Engine.PreDefined.LV_909_LIQUID_FUEL_ENGINE.toEngine();
+	private static final Engine skipper = Engine.PreDefined.ROCKOMAX_SKIPPER_LIQUID_ENGINE.toEngine();
+
+	@Test
+	public void testDominatedEngine() {
+		EnginePruning pruning = new EnginePruning(lvT30, lvT45, lv909);
+		for (EnginePruning.Role role : EnginePruning.Role.values()) {
+			assertFalse(pruning.isKept(1, role));
+			List<EnginePruning.Pruned> pruned = pruning.getPruned(role);
+			assertEquals(1, pruned.size());
+			assertSame(lvT45, pruned.get(0).getEngine());
+			assertSame(lvT30, pruned.get(0).getDominatedBy());
+			assertEquals(role, pruned.get(0).getRole());
+		}
+		assertTrue(pruning.isKept(2, EnginePruning.Role.UPPER_STAGE));
+	}
+
+	@Test
+	public void testHigherIspDoesNotPruneFirstStage() {
+		Engine rma3 = Engine.PreDefined.RMA_3_ORBITAL_ACHIEVEMENT_DEVICE.toEngine();
+		EnginePruning pruning = new EnginePruning(lv909, rma3);
+		assertTrue(pruning.isKept(0, EnginePruning.Role.FIRST_STAGE));
+		assertTrue(pruning.getPruned(EnginePruning.Role.FIRST_STAGE).isEmpty());
+	}
+
+	@Test
+	public void testOtherSizesAreKept() {
+		EnginePruning pruning = new EnginePruning(skipper, lv909);
+		for (EnginePruning.Role role : EnginePruning.Role.values()) {
+			assertEquals(2, pruning.getEngines(role).size());
+			assertTrue(pruning.getPruned(role).isEmpty());
+		}
+	}
+
+	@Test
+	public void testEqualEnginesAreKept() {
+		EnginePruning pruning = new EnginePruning(lvT30, Engine.PreDefined.LV_T30_LIQUID_FUEL_ENGINE.toEngine());
+		assertEquals(2, pruning.getEngines(EnginePruning.Role.FIRST_STAGE).size());
+		assertEquals(2, pruning.getEngines(EnginePruning.Role.UPPER_STAGE).size());
+	}
+}
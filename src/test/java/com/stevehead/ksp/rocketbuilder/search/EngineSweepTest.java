@@ -0,0 +1,221 @@
+package com.stevehead.ksp.rocketbuilder.search;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.stevehead.ksp.rocketbuilder.game.Mod;
+import com.stevehead.ksp.rocketbuilder.interfaces.IspContext;
+import com.stevehead.ksp.rocketbuilder.rocket.Engine;
+import com.stevehead.ksp.rocketbuilder.rocket.Rocket;
+import com.stevehead.ksp.rocketbuilder.rocket.Stage;
+
+public class EngineSweepTest {
+
+	private static EngineSweep testSweep;
+	private static List<EngineSweep.Result> serialResults;
+	private static final double targetDeltaV = 3800;
+	private static final double ispScaler = 0.81;
+	private static final double massIncrements = 200;
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		testSweep = new EngineSweep(targetDeltaV, Engine.getEngines(1.25));
+		testSweep.setIspScaler(ispScaler);
+		testSweep.setMassIncrements(massIncrements);
+		serialResults = testSweep.run();
+	}
+
+	@Test
+	public void testSweepOrder() {
+		for (EngineSweep.Result result : serialResults) {
+			assertTrue(result.getSecondStageEngine().getIsp() > result.getFirstStageEngine().getIsp());
+		}
+		assertFalse(serialResults.isEmpty());
+	}
+
+	@Test
+	public void testIspScalerRestored() {
+		assertEquals(1, Engine.getIspScaler(), 1e-15);
+	}
+
+	@Test
+	public void testParallelMatchesSerial() {
+		assertSameResults(serialResults, testSweep.runParallel());
+	}
+
+	@Test
+	public void testExecutorMatchesSerial() {
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			assertSameResults(serialResults, testSweep.runParallel(executor));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testPayloadReported() {
+		for (EngineSweep.Result result : serialResults) {
+			Rocket rocket = result.getRocket();
+			if (rocket == null) {
+				assertTrue(Double.isNaN(result.getPayloadMass()));
+				continue;
+			}
+			Stage finalStage = rocket.getFinalStage();
+			assertEquals(finalStage.getMass() - finalStage.getGroups()[0].getMass(), result.getPayloadMass(), 1e-7);
+			assertEquals(100.0 * result.getPayloadMass() / rocket.getTotalMass(), result.getPayloadFraction(), 1e-9);
+		}
+	}
+
+	@Test
+	public void testPruneDominated() {
+		EngineSweep prunedSweep = new EngineSweep(targetDeltaV, Engine.getEngines(1.25));
+		prunedSweep.setIspScaler(ispScaler);
+		prunedSweep.setMassIncrements(massIncrements);
+		prunedSweep.setPruneDominated(true);
+		List<EngineSweep.Result> prunedResults = prunedSweep.run();
+		assertTrue(prunedResults.size() < serialResults.size());
+		
+		EnginePruning pruning = prunedSweep.getPruning();
+		int next = 0;
+		for (EngineSweep.Result result : serialResults) {
+			boolean kept = pruning.getEngines(EnginePruning.Role.FIRST_STAGE).contains(result.getFirstStageEngine())
+					&& pruning.getEngines(EnginePruning.Role.UPPER_STAGE).contains(result.getSecondStageEngine());
+			if (kept) assertSameResults(result, prunedResults.get(next++));
+		}
+		assertEquals(prunedResults.size(), next);
+	}
+
+	@Test
+	public void testGroupEquivalent() {
+		Engine[] engines = Engine.getEngines(1.25);
+		Engine[] withCopy = Arrays.copyOf(engines, engines.length + 1);
+		Engine original = engines[0];
+		withCopy[engines.length] = new Engine("Copy", Mod.STOCK, original.getDryMass(), original.getMass(),
+				original.getThrust(), original.getIsp(IspContext.UNSCALED), original.getSize());
+		
+		EngineSweep groupedSweep = new EngineSweep(targetDeltaV, withCopy);
+		groupedSweep.setIspScaler(ispScaler);
+		groupedSweep.setMassIncrements(massIncrements);
+		List<EngineSweep.Result> grouped = groupedSweep.run();
+		
+		EngineSweep separateSweep = new EngineSweep(targetDeltaV, withCopy);
+		separateSweep.setIspScaler(ispScaler);
+		separateSweep.setMassIncrements(massIncrements);
+		separateSweep.setGroupEquivalent(false);
+		assertSameResults(separateSweep.run(), grouped);
+		assertSameResults(grouped, groupedSweep.runParallel());
+		
+		// The copy's pairs get their own rockets, not the original's.
+		int rebuilt = 0;
+		Engine copy = withCopy[engines.length];
+		for (EngineSweep.Result copyResult : grouped) {
+			if (copyResult.getRocket() == null || copyResult.getFirstStageEngine() != copy
+					&& copyResult.getSecondStageEngine() != copy) continue;
+			for (EngineSweep.Result result : grouped) {
+				if (result.getRocket() != null && isOriginalPair(result, copyResult, original, copy)) {
+					assertNotSame(result.getRocket(), copyResult.getRocket());
+					assertSameRocket(result.getRocket(), copyResult.getRocket());
+					rebuilt++;
+				}
+			}
+		}
+		assertTrue(rebuilt > 0);
+	}
+
+	private static boolean isOriginalPair(EngineSweep.Result result, EngineSweep.Result copyResult, Engine original, Engine copy) {
+		Engine first = copyResult.getFirstStageEngine() == copy ? original : copyResult.getFirstStageEngine();
+		Engine second = copyResult.getSecondStageEngine() == copy ? original : copyResult.getSecondStageEngine();
+		return result.getFirstStageEngine() == first && result.getSecondStageEngine() == second;
+	}
+
+	@Test
+	public void testBestOnly() {
+		EngineSweep bestSweep = new EngineSweep(targetDeltaV, Engine.getEngines(1.25));
+		bestSweep.setIspScaler(ispScaler);
+		bestSweep.setMassIncrements(massIncrements);
+		bestSweep.setBestOnly(true);
+		List<EngineSweep.Result> bestResults = bestSweep.run();
+		List<EngineSweep.Result> parallelResults = bestSweep.runParallel();
+		assertEquals(serialResults.size(), bestResults.size());
+		assertEquals(getBestPayloadFraction(serialResults), getBestPayloadFraction(bestResults), 0);
+		assertEquals(getBestPayloadFraction(serialResults), getBestPayloadFraction(parallelResults), 0);
+		
+		int skipped = 0;
+		for (int i = 0; i < bestResults.size(); i++) {
+			if (bestResults.get(i).isSkipped()) {
+				assertNull(bestResults.get(i).getRocket());
+				skipped++;
+			} else {
+				assertSameResults(serialResults.get(i), bestResults.get(i));
+			}
+		}
+		assertTrue(skipped > 0);
+	}
+
+	@Test
+	public void testBestOnlyWithEnginePropellant() {
+		// The winning pair's first stage burns mostly the engine's own
+		// propellant, which its bound has to allow for.
+		Engine integrated = new Engine("Integrated", Mod.STOCK, 500, 50000, 3000000, 350, 2.5);
+		Engine[] engines = {integrated, Engine.PreDefined.ROCKOMAX_POODLE_LIQUID_ENGINE.toEngine(),
+				Engine.PreDefined.LV_909_LIQUID_FUEL_ENGINE.toEngine()};
+		EngineSweep sweep = new EngineSweep(targetDeltaV, engines);
+		sweep.setIspScaler(ispScaler);
+		sweep.setMassIncrements(massIncrements);
+		List<EngineSweep.Result> results = sweep.run();
+		List<EngineSweep.Result> bestResults = sweep.setBestOnly(true).run();
+		assertEquals(getBestPayloadFraction(results), getBestPayloadFraction(bestResults), 0);
+		int winner = 0;
+		for (int i = 1; i < results.size(); i++) {
+			if (results.get(i).getPayloadFraction() > results.get(winner).getPayloadFraction()) winner = i;
+		}
+		assertSame(integrated, results.get(winner).getFirstStageEngine());
+		assertSameResults(results.get(winner), bestResults.get(winner));
+	}
+
+	private static double getBestPayloadFraction(List<EngineSweep.Result> results) {
+		double best = 0;
+		for (EngineSweep.Result result : results) {
+			Rocket rocket = result.getRocket();
+			if (rocket == null) continue;
+			Stage finalStage = rocket.getFinalStage();
+			double payloadMass = finalStage.getMass() - finalStage.getGroups()[0].getMass();
+			best = Math.max(best, payloadMass / rocket.getTotalMass());
+		}
+		return best;
+	}
+
+	private static void assertSameRocket(Rocket expected, Rocket actual) {
+		assertEquals(expected.getStages().length, actual.getStages().length);
+		for (int i = 0; i < expected.getStages().length; i++) {
+			assertEquals(expected.getStage(i).getMass(), actual.getStage(i).getMass(), 0);
+			assertEquals(expected.getStage(i).getDryMass(), actual.getStage(i).getDryMass(), 0);
+		}
+	}
+
+	private static void assertSameResults(List<EngineSweep.Result> expected, List<EngineSweep.Result> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertSameResults(expected.get(i), actual.get(i));
+		}
+	}
+
+	private static void assertSameResults(EngineSweep.Result expected, EngineSweep.Result actual) {
+		assertSame(expected.getFirstStageEngine(), actual.getFirstStageEngine());
+		assertSame(expected.getSecondStageEngine(), actual.getSecondStageEngine());
+		assertEquals(expected.getRocket() == null, actual.getRocket() == null);
+		if (expected.getRocket() != null) {
+			assertEquals(expected.getRocket().getTotalMass(), actual.getRocket().getTotalMass(), 1e-7);
+			assertEquals(expected.getRocket().getTotalDeltaV(), actual.getRocket().getTotalDeltaV(), 1e-7);
+			assertEquals(expected.getPayloadMass(), actual.getPayloadMass(), 0);
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package com.stevehead.ksp.rocketbuilder.search;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class ParetoArchiveTest {
+
+	@Test
+	public void testDropsDominatedDesigns() {
+		ParetoArchive archive = new ParetoArchive(1, 1, 1, 1);
+		assertTrue(archive.offer(10, 100, 1, new double[] {1}));
+		assertTrue(archive.offer(5, 200, 1, new double[] {2}));
+		assertFalse(archive.offer(4, 150, 1, new double[] {3}));
+		assertEquals(2, archive.size());
+		
+		assertTrue(archive.offer(11, 300, 2, new double[] {4}));
+		assertEquals(1, archive.size());
+		assertArrayEquals(new double[] {4}, archive.getTankMasses(0), 0);
+	}
+
+	@Test
+	public void testOneDesignPerBox() {
+		ParetoArchive archive = new ParetoArchive(1, 10, 100, 1);
+		assertTrue(archive.offer(12, 250, 1.5, new double[] {1}));
+		assertFalse(archive.offer(11, 290, 1.5, new double[] {2}));
+		assertTrue(archive.offer(13, 260, 1.5, new double[] {3}));
+		assertEquals(1, archive.size());
+		assertEquals(13, archive.getPayloadFraction(0), 0);
+		assertEquals(260, archive.getDeltaV(0), 0);
+		assertEquals(1.5, archive.getTWR(0), 0);
+	}
+
+	@Test
+	public void testGrows() {
+		ParetoArchive archive = new ParetoArchive(2, 1, 1, 1);
+		for (int i = 0; i < 100; i++) {
+			assertTrue(archive.offer(i, 100 - i, 1, new double[] {i, -i}));
+		}
+		assertEquals(100, archive.size());
+		archive.clear();
+		assertEquals(0, archive.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNonPositiveEpsilon() {
+		new ParetoArchive(1, 0, 1, 1).getClass();
+	}
+}
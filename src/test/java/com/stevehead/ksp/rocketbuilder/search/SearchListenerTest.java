@@ -0,0 +1,118 @@
+package com.stevehead.ksp.rocketbuilder.search;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.stevehead.ksp.rocketbuilder.rocket.Engine;
+import com.stevehead.ksp.rocketbuilder.search.SearchStats.Improvement;
+
+public class SearchListenerTest {
+
+	private static final double targetDeltaV = 3800;
+	private static final double massIncrements = 400;
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		Engine.setIspScaler(1);
+	}
+
+	@Test
+	public void testListenerSeesEveryImprovement() {
+		RecordingListener listener = new RecordingListener();
+		SearchResult result = createSearch().setListener(listener).search(20000);
+		assertEquals(result.getStats().getImprovements(), listener.improvements);
+	}
+
+	@Test
+	public void testAsyncListenerDeliversInOrder() {
+		RecordingListener listener = new RecordingListener();
+		AsyncSearchListener asyncListener = new AsyncSearchListener(listener, 1);
+		SearchResult result;
+		try {
+			result = createSearch().setListener(asyncListener).search(20000);
+		} finally {
+			asyncListener.close();
+		}
+		assertEquals(result.getStats().getImprovements(), listener.improvements);
+		assertNotSame(Thread.currentThread(), listener.thread);
+	}
+
+	@Test
+	public void testAsyncListenerFlush() {
+		RecordingListener listener = new RecordingListener();
+		AsyncSearchListener asyncListener = new AsyncSearchListener(listener, 1);
+		try {
+			SearchResult result = createSearch().setListener(asyncListener).search(20000);
+			asyncListener.flush();
+			assertEquals(result.getStats().getImprovements(), listener.improvements);
+
+			// The listener stays open for the next search.
+			listener.improvements.clear();
+			result = createSearch().setListener(asyncListener).search(20000);
+			asyncListener.flush();
+			assertEquals(result.getStats().getImprovements(), listener.improvements);
+		} finally {
+			asyncListener.close();
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testAsyncListenerFailure() {
+		AsyncSearchListener asyncListener = new AsyncSearchListener(new SearchListener() {
+			@Override
+			public void onImprovement(Improvement improvement) {
+				throw new UnsupportedOperationException();
+			}
+		});
+		try {
+			createSearch().setListener(asyncListener).search(20000);
+		} finally {
+			asyncListener.close();
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testAsyncListenerClosed() {
+		AsyncSearchListener asyncListener = new AsyncSearchListener(SearchListener.NONE);
+		asyncListener.close();
+		createSearch().setListener(asyncListener).search(20000);
+	}
+
+	@Test
+	public void testPrintStreamListener() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		SearchResult result = createSearch().setListener(new PrintStreamListener(new PrintStream(bytes, true))).search(20000);
+		List<Improvement> improvements = result.getStats().getImprovements();
+		String[] lines = bytes.toString().split("\\R");
+		assertEquals(improvements.size(), lines.length);
+
+		Improvement last = improvements.get(improvements.size() - 1);
+		double[] tankMasses = last.getTankMasses();
+		String expected = last.getPayloadMass() + ", " + tankMasses[0] + ", " + tankMasses[1] + ": "
+				+ last.getDeltaV() + ", " + last.getPayloadFraction() + "%";
+		assertEquals(expected, lines[lines.length - 1]);
+	}
+
+	private static StagedSearch createSearch() {
+		return new StagedSearch(targetDeltaV, massIncrements, new double[] {1.2, 2.0}, 1,
+				Engine.PreDefined.LV_T30_LIQUID_FUEL_ENGINE, Engine.PreDefined.LV_909_LIQUID_FUEL_ENGINE);
+	}
+
+	private static class RecordingListener implements SearchListener {
+		private final List<Improvement> improvements = new ArrayList<Improvement>();
+		private volatile Thread thread;
+
+		@Override
+		public void onImprovement(Improvement improvement) {
+			improvements.add(improvement);
+			thread = Thread.currentThread();
+		}
+	}
+}
@@ -0,0 +1,131 @@
+package com.stevehead.ksp.rocketbuilder.search;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.stevehead.ksp.rocketbuilder.interfaces.Thrustable;
+import com.stevehead.ksp.rocketbuilder.rocket.Engine;
+import com.stevehead.ksp.rocketbuilder.rocket.Rocket;
+import com.stevehead.ksp.rocketbuilder.search.SearchStats.Improvement;
+import com.stevehead.ksp.rocketbuilder.search.SearchStats.Rejection;
+
+public class SearchStatsTest {
+
+	private static SearchResult exhaustiveResult;
+	private static SearchResult boundResult;
+	private static final double targetDeltaV = 6000;
+	private static final double massIncrements = 400;
+	private static final double[] targetTWRs = {1.2, 2.0, 1.0, 1.0};
+	private static final Thrustable[] engines = {
+		Engine.PreDefined.ROCKOMAX_SKIPPER_LIQUID_ENGINE,
+		Engine.PreDefined.ROCKOMAX_SKIPPER_LIQUID_ENGINE,
+		Engine.PreDefined.ROCKOMAX_POODLE_LIQUID_ENGINE,
+		Engine.PreDefined.LV_909_LIQUID_FUEL_ENGINE
+	};
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		Engine.setIspScaler(1);
+		exhaustiveResult = new StagedSearch(targetDeltaV, massIncrements, targetTWRs, 1, engines).search(65000);
+		boundResult = new StagedSearch(targetDeltaV, massIncrements, targetTWRs, 1, engines)
+				.setStrategy(SearchStrategy.BRANCH_AND_BOUND)
+				.search(65000);
+	}
+
+	@Test
+	public void testCandidatesAddUp() {
+		SearchStats stats = exhaustiveResult.getStats();
+		assertEquals(engines.length, stats.getStages());
+		long candidates = 0;
+		for (int i = 0; i < stats.getStages(); i++) {
+			long rejected = stats.getRejections(i, Rejection.BELOW_TARGET_TWR)
+					+ stats.getRejections(i, Rejection.BELOW_UPPER_TWR)
+					+ stats.getRejections(i, Rejection.OUTSIDE_TANK_SIZE_RATIO);
+			assertEquals(stats.getCandidates(i), stats.getAccepted(i) + rejected);
+			candidates += stats.getCandidates(i);
+		}
+		assertEquals(stats.getCandidates(), candidates);
+		assertEquals(stats.getAccepted(0), stats.getDesigns());
+		assertEquals(0, stats.getRejections(Rejection.BOUND));
+	}
+
+	@Test
+	public void testWalkWithinLimits() {
+		SearchStats stats = exhaustiveResult.getStats();
+		assertEquals(0, stats.getRejections(Rejection.BELOW_TARGET_TWR));
+		assertEquals(0, stats.getRejections(Rejection.BELOW_UPPER_TWR));
+		assertEquals(0, stats.getRejections(Rejection.OUTSIDE_TANK_SIZE_RATIO));
+		assertTrue(stats.getRejections(Rejection.BELOW_TARGET_DELTA_V) > 0);
+	}
+
+	@Test
+	public void testImprovements() {
+		Rocket rocket = exhaustiveResult.getRocket();
+		List<Improvement> improvements = exhaustiveResult.getStats().getImprovements();
+		assertFalse(improvements.isEmpty());
+
+		Improvement last = improvements.get(improvements.size() - 1);
+		assertEquals(100.0 * last.getPayloadMass() / rocket.getTotalMass(), last.getPayloadFraction(), 0);
+		assertEquals(engines.length, last.getTankMasses().length);
+		assertTrue(last.getDeltaV() > targetDeltaV);
+		assertTrue(last.getCandidates() <= exhaustiveResult.getStats().getCandidates());
+	}
+
+	@Test
+	public void testBranchAndBoundPrunes() {
+		SearchStats exhaustiveStats = exhaustiveResult.getStats();
+		SearchStats boundStats = boundResult.getStats();
+		assertTrue(boundStats.getRejections(Rejection.BOUND) > 0);
+		assertTrue(boundStats.getCandidates() < exhaustiveStats.getCandidates());
+		assertEquals(exhaustiveStats.getPayloads(), boundStats.getPayloads());
+	}
+
+	@Test
+	public void testBisectionProbes() {
+		SearchStats stats = new StagedSearch(3800, massIncrements, new double[] {1.2, 2.0}, 1,
+				Engine.PreDefined.LV_T30_LIQUID_FUEL_ENGINE, Engine.PreDefined.LV_909_LIQUID_FUEL_ENGINE)
+				.setStrategy(SearchStrategy.BRANCH_AND_BOUND)
+				.setPayloadSearch(PayloadSearch.BISECTION)
+				.search(20000)
+				.getStats();
+		assertEquals(1, stats.getPayloads());
+		assertTrue(stats.getProbes() > 0);
+	}
+
+	@Test
+	public void testNoBisectionAboveTwoStages() {
+		SearchResult result = new StagedSearch(targetDeltaV, massIncrements, targetTWRs, 1, engines)
+				.setStrategy(SearchStrategy.BRANCH_AND_BOUND)
+				.setPayloadSearch(PayloadSearch.BISECTION)
+				.search(65000);
+		assertEquals(0, result.getStats().getProbes());
+		assertEquals(boundResult.getStats().getPayloads(), result.getStats().getPayloads());
+		assertEquals(boundResult.getPayloadMass(), result.getPayloadMass(), 0);
+	}
+
+	@Test
+	public void testTimes() {
+		SearchStats stats = exhaustiveResult.getStats();
+		assertTrue(stats.getWallTime() > 0);
+		assertTrue(stats.getCpuTime() >= -1);
+		assertEquals(-1, stats.getStageTime(0));
+	}
+
+	@Test
+	public void testStageTimes() {
+		SearchStats stats = new StagedSearch(targetDeltaV, massIncrements, targetTWRs, 1, engines)
+				.setStageTiming(true)
+				.search(65000)
+				.getStats();
+		// A stage's time takes in the stages beneath it.
+		assertTrue(stats.getStageTime(0) > 0);
+		for (int i = 1; i < stats.getStages(); i++) {
+			assertTrue(stats.getStageTime(i) >= stats.getStageTime(i - 1));
+		}
+		assertTrue(stats.getStageTime(stats.getStages() - 1) <= stats.getWallTime());
+	}
+}
@@ -0,0 +1,112 @@
+package com.stevehead.ksp.rocketbuilder.search;
+
+import static org.junit.Assert.*;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.stevehead.ksp.rocketbuilder.interfaces.IspContext;
+import com.stevehead.ksp.rocketbuilder.interfaces.Thrustable;
+import com.stevehead.ksp.rocketbuilder.rocket.Engine;
+import com.stevehead.ksp.rocketbuilder.rocket.PackedEngines;
+import com.stevehead.ksp.rocketbuilder.rocket.Payload;
+import com.stevehead.ksp.rocketbuilder.rocket.ProceduralTank;
+import com.stevehead.ksp.rocketbuilder.rocket.Stack;
+import com.stevehead.ksp.rocketbuilder.rocket.Stage;
+
+public class StageKernelTest {
+
+	private static StageKernel testKernel;
+	private static Stage testStage;
+	private static final Thrustable testEngine = Engine.PreDefined.LV_T30_LIQUID_FUEL_ENGINE;
+	private static final double payloadMass = 1850;
+	private static final double tankMass = 7350;
+	private static final int stackSize = 3;
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		testKernel = new StageKernel(testEngine, stackSize);
+		Stack stack = new Stack(new ProceduralTank(tankMass, testEngine.getPropellants()), testEngine);
+		testStage = new Stage(new Payload(payloadMass), stack, stackSize);
+	}
+
+	@Test
+	public void testGetMass() {
+		assertEquals(testStage.getMass(), testKernel.getMass(payloadMass, tankMass), 0);
+	}
+
+	@Test
+	public void testGetDryMass() {
+		assertEquals(testStage.getDryMass(), testKernel.getDryMass(payloadMass, tankMass), 0);
+	}
+
+	@Test
+	public void testGetThrust() {
+		assertEquals(testStage.getThrust(), testKernel.getThrust(), 0);
+	}
+
+	@Test
+	public void testGetIsp() {
+		assertEquals(testStage.getIsp(), testKernel.getIsp(), 0);
+	}
+
+	@Test
+	public void testGetMinTWR() {
+		double mass = testKernel.getMass(payloadMass, tankMass);
+		assertEquals(testStage.getMinTWR(), testKernel.getMinTWR(mass), 0);
+	}
+
+	@Test
+	public void testGetMaxTankMass() {
+		double minTWR = 1.2;
+		double maxTankMass = testKernel.getMaxTankMass(payloadMass, minTWR);
+		assertEquals(minTWR, testKernel.getMinTWR(testKernel.getMass(payloadMass, maxTankMass)), 1e-9);
+		assertTrue(testKernel.getMinTWR(testKernel.getMass(payloadMass, maxTankMass - 1)) > minTWR);
+		assertTrue(testKernel.getMinTWR(testKernel.getMass(payloadMass, maxTankMass + 1)) < minTWR);
+	}
+
+	@Test
+	public void testGetDeltaV() {
+		double mass = testKernel.getMass(payloadMass, tankMass);
+		double dryMass = testKernel.getDryMass(payloadMass, tankMass);
+		assertEquals(testStage.getDeltaV(), testKernel.getDeltaV(mass, dryMass), 0);
+	}
+
+	@Test
+	public void testMatchesStageForManyStacks() {
+		Thrustable[] engines = {
+			Engine.PreDefined.LV_T30_LIQUID_FUEL_ENGINE,
+			Engine.PreDefined.LV_909_LIQUID_FUEL_ENGINE,
+			Engine.PreDefined.ROCKOMAX_SKIPPER_LIQUID_ENGINE
+		};
+		for (Thrustable engine : engines) {
+			for (int stacks = 2; stacks <= 8; stacks++) {
+				StageKernel kernel = new StageKernel(engine, stacks, IspContext.UNSCALED);
+				for (double tank = 50; tank <= 20000; tank += 123.7) {
+					Stack stack = new Stack(new ProceduralTank(tank, engine.getPropellants()), engine);
+					Stage stage = new Stage(new Payload(payloadMass), stack, stacks);
+					assertEquals(stage.getMass(), kernel.getMass(payloadMass, tank), 0);
+					assertEquals(stage.getDryMass(), kernel.getDryMass(payloadMass, tank), 0);
+					assertEquals(stage.getThrust(), kernel.getThrust(), 0);
+					assertEquals(stage.getIsp(IspContext.UNSCALED), kernel.getIsp(), 0);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testPackedEngineKernel() {
+		IspContext ispContext = new IspContext(0.81);
+		StageKernel kernel = new StageKernel(testEngine, stackSize, ispContext);
+		StageKernel packedKernel = new StageKernel(PackedEngines.getPreDefined(), Engine.PreDefined.LV_T30_LIQUID_FUEL_ENGINE.ordinal(), stackSize, ispContext);
+		assertEquals(kernel.getIsp(), packedKernel.getIsp(), 0);
+		assertEquals(kernel.getThrust(), packedKernel.getThrust(), 0);
+		assertEquals(kernel.getMass(payloadMass, tankMass), packedKernel.getMass(payloadMass, tankMass), 0);
+		assertEquals(kernel.getDryMass(payloadMass, tankMass), packedKernel.getDryMass(payloadMass, tankMass), 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidStackSize() {
+		new StageKernel(testEngine, 0).getClass();
+	}
+}
@@ -0,0 +1,363 @@
+package com.stevehead.ksp.rocketbuilder.search;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.stevehead.ksp.rocketbuilder.game.Mod;
+import com.stevehead.ksp.rocketbuilder.interfaces.IspContext;
+import com.stevehead.ksp.rocketbuilder.interfaces.Thrustable;
+import com.stevehead.ksp.rocketbuilder.rocket.Engine;
+import com.stevehead.ksp.rocketbuilder.rocket.Rocket;
+import com.stevehead.ksp.rocketbuilder.rocket.Stage;
+
+public class StagedSearchTest {
+
+	private static Rocket twoStageRocket;
+	private static Rocket fourStageRocket;
+	private static final double twoStageDeltaV = 3800;
+	private static final double fourStageDeltaV = 6000;
+	private static final double massIncrements = 400;
+	private static final double[] targetTWRs = {1.2, 2.0, 1.0, 1.0};
+	private static final Thrustable[] fourStageEngines = {
+		Engine.PreDefined.ROCKOMAX_SKIPPER_LIQUID_ENGINE,
+		Engine.PreDefined.ROCKOMAX_SKIPPER_LIQUID_ENGINE,
+		Engine.PreDefined.ROCKOMAX_POODLE_LIQUID_ENGINE,
+		Engine.PreDefined.LV_909_LIQUID_FUEL_ENGINE
+	};
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		Engine.setIspScaler(1);
+		StagedSearch twoStageSearch = new StagedSearch(twoStageDeltaV, massIncrements, new double[] {1.2, 2.0}, 1,
+				Engine.PreDefined.LV_T30_LIQUID_FUEL_ENGINE, Engine.PreDefined.LV_909_LIQUID_FUEL_ENGINE);
+		twoStageRocket = twoStageSearch.run(20000);
+		StagedSearch fourStageSearch = new StagedSearch(fourStageDeltaV, massIncrements, targetTWRs, 1, fourStageEngines);
+		fourStageRocket = fourStageSearch.run(65000);
+	}
+
+	@Test
+	public void testTwoStage() {
+		assertNotNull(twoStageRocket);
+		assertEquals(2, twoStageRocket.getStages().length);
+		assertTrue(twoStageRocket.getTotalDeltaV() > twoStageDeltaV);
+		assertTrue(twoStageRocket.getStartingTWR() >= targetTWRs[0]);
+	}
+
+	@Test
+	public void testFourStage() {
+		assertNotNull(fourStageRocket);
+		assertEquals(fourStageEngines.length, fourStageRocket.getStages().length);
+		assertTrue(fourStageRocket.getTotalDeltaV() > fourStageDeltaV);
+	}
+
+	@Test
+	public void testFourStageTargetTWRs() {
+		Stage[] stages = fourStageRocket.getStages();
+		for (int i = 0; i < stages.length; i++) {
+			assertTrue(stages[i].getMinTWR() >= targetTWRs[i]);
+		}
+		for (int i = 1; i < stages.length - 1; i++) {
+			assertTrue(stages[i].getMinTWR() >= stages[i + 1].getMinTWR());
+		}
+	}
+
+	@Test
+	public void testBranchAndBoundMatchesExhaustive() {
+		StagedSearch twoStageSearch = new StagedSearch(twoStageDeltaV, massIncrements, new double[] {1.2, 2.0}, 1,
+				Engine.PreDefined.LV_T30_LIQUID_FUEL_ENGINE, Engine.PreDefined.LV_909_LIQUID_FUEL_ENGINE);
+		twoStageSearch.setStrategy(SearchStrategy.BRANCH_AND_BOUND);
+		assertSameRocket(twoStageRocket, twoStageSearch.run(20000));
+
+		StagedSearch fourStageSearch = new StagedSearch(fourStageDeltaV, massIncrements, targetTWRs, 1, fourStageEngines);
+		fourStageSearch.setStrategy(SearchStrategy.BRANCH_AND_BOUND);
+		assertSameRocket(fourStageRocket, fourStageSearch.run(65000));
+	}
+
+	@Test
+	public void testBranchAndBoundWithEnginePropellant() {
+		// The engine carries most of its own propellant, so its stage is
+		// lighter than its engine's dry mass suggests.
+		IspContext ispContext = new IspContext(1);
+		Engine integrated = new Engine("Integrated", Mod.STOCK, 10000, 42000, 2000000, 380, 2.5);
+		Thrustable[] twoStageEngines = {integrated, Engine.PreDefined.ORBITAL_BERTHA};
+		SearchResult expected = new StagedSearch(ispContext, 3000, 50, new double[] {1.2, 2.0}, 1, twoStageEngines).search(203900);
+		assertEquals(18500, expected.getPayloadMass(), 0);
+		StagedSearch twoStageSearch = new StagedSearch(ispContext, 3000, 50, new double[] {1.2, 2.0}, 1, twoStageEngines);
+		twoStageSearch.setStrategy(SearchStrategy.BRANCH_AND_BOUND);
+		assertSameRocket(expected.getRocket(), twoStageSearch.run(203900));
+
+		Thrustable[] threeStageEngines = {integrated, Engine.PreDefined.THE_MICRO_MOTHER, Engine.PreDefined.ORBITAL_BERTHA};
+		double[] threeStageTWRs = {1.2, 2.0, 1.0};
+		Rocket threeStageRocket = new StagedSearch(ispContext, 6000, 200, threeStageTWRs, 1, threeStageEngines).run(204000);
+		StagedSearch threeStageSearch = new StagedSearch(ispContext, 6000, 200, threeStageTWRs, 1, threeStageEngines);
+		threeStageSearch.setStrategy(SearchStrategy.BRANCH_AND_BOUND);
+		assertSameRocket(threeStageRocket, threeStageSearch.run(204000));
+	}
+
+	@Test
+	public void testBisectionMatchesLinear() {
+		StagedSearch twoStageSearch = new StagedSearch(twoStageDeltaV, massIncrements, new double[] {1.2, 2.0}, 1,
+				Engine.PreDefined.LV_T30_LIQUID_FUEL_ENGINE, Engine.PreDefined.LV_909_LIQUID_FUEL_ENGINE);
+		twoStageSearch.setPayloadSearch(PayloadSearch.BISECTION);
+		assertSameRocket(twoStageRocket, twoStageSearch.run(20000));
+
+		// Above two stages the payloads are walked one by one instead, the
+		// same walk as without bisection.
+		StagedSearch fourStageSearch = new StagedSearch(fourStageDeltaV, massIncrements, targetTWRs, 1, fourStageEngines);
+		fourStageSearch.setStrategy(SearchStrategy.BRANCH_AND_BOUND);
+		SearchStats linearStats = fourStageSearch.search(65000).getStats();
+		fourStageSearch.setPayloadSearch(PayloadSearch.BISECTION);
+		SearchStats bisectionStats = fourStageSearch.search(65000).getStats();
+		assertEquals(0, bisectionStats.getProbes());
+		assertEquals(linearStats.getPayloads(), bisectionStats.getPayloads());
+		assertEquals(linearStats.getCandidates(), bisectionStats.getCandidates());
+	}
+
+	@Test
+	public void testBisectionWithoutDesign() {
+		StagedSearch search = new StagedSearch(50000, massIncrements, new double[] {1.2}, 1, Engine.PreDefined.LV_T30_LIQUID_FUEL_ENGINE);
+		search.setPayloadSearch(PayloadSearch.BISECTION);
+		assertNull(search.run(20000));
+	}
+
+	@Test
+	public void testIspContext() {
+		double ispScaler = 0.81;
+		StagedSearch contextSearch = new StagedSearch(new IspContext(ispScaler), twoStageDeltaV, massIncrements, new double[] {1.2, 2.0}, 1,
+				Engine.PreDefined.LV_T30_LIQUID_FUEL_ENGINE, Engine.PreDefined.LV_909_LIQUID_FUEL_ENGINE);
+		Rocket contextRocket = contextSearch.run(20000);
+		assertEquals(1, Engine.getIspScaler(), 0);
+		assertTrue(contextRocket.getTotalDeltaV() > twoStageDeltaV);
+
+		Rocket globalRocket;
+		Engine.setIspScaler(ispScaler);
+		try {
+			StagedSearch globalSearch = new StagedSearch(twoStageDeltaV, massIncrements, new double[] {1.2, 2.0}, 1,
+					Engine.PreDefined.LV_T30_LIQUID_FUEL_ENGINE, Engine.PreDefined.LV_909_LIQUID_FUEL_ENGINE);
+			globalRocket = globalSearch.run(20000);
+		} finally {
+			Engine.setIspScaler(1);
+		}
+		assertSameRocket(globalRocket, contextRocket);
+	}
+
+	@Test
+	public void testTopDesigns() {
+		int topDesigns = 5;
+		StagedSearch search = new StagedSearch(fourStageDeltaV, massIncrements, targetTWRs, 1, fourStageEngines);
+		search.setTopDesigns(topDesigns);
+		List<Rocket> rockets = search.search(65000).getRockets();
+		assertEquals(topDesigns, rockets.size());
+		assertSameRocket(fourStageRocket, rockets.get(0));
+		
+		double payloadMass = getPayloadMass(rockets.get(0));
+		for (int i = 1; i < rockets.size(); i++) {
+			assertEquals(payloadMass, getPayloadMass(rockets.get(i)), 1e-7);
+			assertTrue(rockets.get(i).getTotalMass() >= rockets.get(i - 1).getTotalMass());
+			assertTrue(rockets.get(i).getTotalDeltaV() > fourStageDeltaV);
+		}
+		
+		StagedSearch boundSearch = new StagedSearch(fourStageDeltaV, massIncrements, targetTWRs, 1, fourStageEngines);
+		boundSearch.setTopDesigns(topDesigns).setStrategy(SearchStrategy.BRANCH_AND_BOUND);
+		List<Rocket> boundRockets = boundSearch.search(65000).getRockets();
+		assertEquals(rockets.size(), boundRockets.size());
+		for (int i = 0; i < rockets.size(); i++) {
+			assertSameRocket(rockets.get(i), boundRockets.get(i));
+		}
+	}
+	
+	@Test
+	public void testParetoFront() {
+		double fractionEpsilon = 0.1;
+		StagedSearch search = new StagedSearch(fourStageDeltaV, massIncrements, targetTWRs, 1, fourStageEngines);
+		search.setParetoFront(fractionEpsilon, 50, 0.05);
+		SearchResult result = search.search(65000);
+		List<Rocket> front = result.getParetoFront();
+		assertFalse(front.isEmpty());
+		
+		double payloadMass = getPayloadMass(result.getRocket());
+		double bestFraction = payloadMass / result.getRocket().getTotalMass();
+		assertTrue(100 * payloadMass / front.get(0).getTotalMass() >= 100 * bestFraction - fractionEpsilon);
+		for (Rocket rocket : front) {
+			assertEquals(payloadMass, getPayloadMass(rocket), 1e-7);
+			assertTrue(rocket.getTotalDeltaV() > fourStageDeltaV);
+			for (Rocket other : front) {
+				boolean dominated = other.getTotalMass() <= rocket.getTotalMass()
+						&& other.getTotalDeltaV() >= rocket.getTotalDeltaV()
+						&& other.getStartingTWR() >= rocket.getStartingTWR()
+						&& other != rocket;
+				assertFalse(dominated && (other.getTotalMass() < rocket.getTotalMass()
+						|| other.getTotalDeltaV() > rocket.getTotalDeltaV()
+						|| other.getStartingTWR() > rocket.getStartingTWR()));
+			}
+		}
+		
+		StagedSearch boundSearch = new StagedSearch(fourStageDeltaV, massIncrements, targetTWRs, 1, fourStageEngines);
+		boundSearch.setParetoFront(fractionEpsilon, 50, 0.05).setStrategy(SearchStrategy.BRANCH_AND_BOUND);
+		List<Rocket> boundFront = boundSearch.search(65000).getParetoFront();
+		assertEquals(front.size(), boundFront.size());
+		for (int i = 0; i < front.size(); i++) {
+			assertSameRocket(front.get(i), boundFront.get(i));
+		}
+	}
+	
+	@Test
+	public void testPayloadFractionBound() {
+		StagedSearch twoStageSearch = new StagedSearch(twoStageDeltaV, massIncrements, new double[] {1.2, 2.0}, 1,
+				Engine.PreDefined.LV_T30_LIQUID_FUEL_ENGINE, Engine.PreDefined.LV_909_LIQUID_FUEL_ENGINE);
+		SearchResult twoStageResult = twoStageSearch.search(20000);
+		assertTrue(twoStageSearch.getPayloadFractionBound(20000) >= twoStageResult.getPayloadFraction());
+		
+		StagedSearch fourStageSearch = new StagedSearch(fourStageDeltaV, massIncrements, targetTWRs, 1, fourStageEngines);
+		SearchResult fourStageResult = fourStageSearch.search(65000);
+		assertEquals(100 * getPayloadMass(fourStageRocket) / fourStageRocket.getTotalMass(), fourStageResult.getPayloadFraction(), 1e-9);
+		assertTrue(fourStageSearch.getPayloadFractionBound(65000) >= fourStageResult.getPayloadFraction());
+		
+		StagedSearch infeasibleSearch = new StagedSearch(50000, massIncrements, new double[] {1.2}, 1, Engine.PreDefined.LV_T30_LIQUID_FUEL_ENGINE);
+		assertEquals(0, infeasibleSearch.getPayloadFractionBound(20000), 0);
+		assertTrue(Double.isNaN(infeasibleSearch.search(20000).getPayloadFraction()));
+	}
+	
+	@Test
+	public void testMultiResolution() {
+		StagedSearch twoStageSearch = new StagedSearch(twoStageDeltaV, massIncrements, new double[] {1.2, 2.0}, 1,
+				Engine.PreDefined.LV_T30_LIQUID_FUEL_ENGINE, Engine.PreDefined.LV_909_LIQUID_FUEL_ENGINE);
+		SearchResult twoStageResult = twoStageSearch.search(20000);
+		twoStageSearch.setStrategy(SearchStrategy.MULTI_RESOLUTION).setMultiResolution(2, 16);
+		assertCloseResult(twoStageResult, twoStageSearch.search(20000));
+		
+		StagedSearch fourStageSearch = new StagedSearch(fourStageDeltaV, massIncrements, targetTWRs, 1, fourStageEngines);
+		SearchResult fourStageResult = fourStageSearch.search(65000);
+		fourStageSearch.setStrategy(SearchStrategy.MULTI_RESOLUTION).setMultiResolution(2, 16);
+		SearchResult multiResolutionResult = fourStageSearch.search(65000);
+		assertCloseResult(fourStageResult, multiResolutionResult);
+		assertTrue(multiResolutionResult.getStats().getDesigns() < fourStageResult.getStats().getDesigns());
+	}
+	
+	@Test
+	public void testMultiResolutionTies() {
+		// Both pairs have more than one design of the best payload fraction.
+		assertSameAsExhaustive(SearchStrategy.MULTI_RESOLUTION, 3800, 50, 20400,
+				Engine.PreDefined.LV_T45_LIQUID_FUEL_ENGINE, Engine.PreDefined.K2_X_LIQUID_FUEL_ROCKET_ENGINE_1_25);
+		assertSameAsExhaustive(SearchStrategy.MULTI_RESOLUTION, 3800, 50, 24500,
+				Engine.PreDefined.SLS_125_BEARCAT_SERIES_ONE_LIQUID_ENGINE, Engine.PreDefined.LV_T45_LIQUID_FUEL_ENGINE);
+	}
+	
+	@Test
+	public void testMultiResolutionFallback() {
+		// The refined walks lose every design at the best payload.
+		IspContext ispContext = new IspContext(0.81);
+		double[] threeStageTWRs = {1.2, 2.0, 1.0};
+		Thrustable[] engines = {Engine.PreDefined._4X_900_LIQUID_FUEL_ENGINE_CLUSTER,
+				Engine.PreDefined.M50_MAIN_ROCKET_ENGINE, Engine.PreDefined.THE_MICRO_MOTHER};
+		SearchResult expected = new StagedSearch(ispContext, 5000, 200, threeStageTWRs, 1, engines).search(11000);
+		assertEquals(10600, expected.getPayloadMass(), 0);
+		StagedSearch search = new StagedSearch(ispContext, 5000, 200, threeStageTWRs, 1, engines);
+		search.setStrategy(SearchStrategy.MULTI_RESOLUTION);
+		assertCloseResult(expected, search.search(11000));
+	}
+
+	@Test
+	public void testLineSearch() {
+		StagedSearch twoStageSearch = new StagedSearch(twoStageDeltaV, massIncrements, new double[] {1.2, 2.0}, 1,
+				Engine.PreDefined.LV_T30_LIQUID_FUEL_ENGINE, Engine.PreDefined.LV_909_LIQUID_FUEL_ENGINE);
+		twoStageSearch.setStrategy(SearchStrategy.LINE_SEARCH);
+		assertSameRocket(twoStageRocket, twoStageSearch.run(20000));
+		
+		StagedSearch fourStageSearch = new StagedSearch(fourStageDeltaV, massIncrements, targetTWRs, 1, fourStageEngines);
+		SearchResult fourStageResult = fourStageSearch.search(65000);
+		fourStageSearch.setStrategy(SearchStrategy.LINE_SEARCH);
+		SearchResult lineSearchResult = fourStageSearch.search(65000);
+		assertCloseResult(fourStageResult, lineSearchResult);
+		assertTrue(lineSearchResult.getStats().getCandidates() < fourStageResult.getStats().getCandidates());
+		
+		fourStageSearch.setPayloadSearch(PayloadSearch.BISECTION);
+		assertSameRocket(lineSearchResult.getRocket(), fourStageSearch.run(65000));
+	}
+	
+	@Test
+	public void testLineSearchTies() {
+		// Both pairs have more than one design of the best payload fraction.
+		assertSameAsExhaustive(SearchStrategy.LINE_SEARCH, 3800, 50, 5100,
+				Engine.PreDefined.LV_909_LIQUID_FUEL_ENGINE, Engine.PreDefined.RMA_3_ORBITAL_ACHIEVEMENT_DEVICE);
+		assertSameAsExhaustive(SearchStrategy.LINE_SEARCH, 4500, 200, 188600,
+				Engine.PreDefined._4X_900_LIQUID_FUEL_ENGINE_CLUSTER, Engine.PreDefined.M50_MAIN_ROCKET_ENGINE);
+	}
+	
+	@Test
+	public void testGridIndices() {
+		double oddIncrements = 123.7;
+		StagedSearch search = new StagedSearch(twoStageDeltaV, oddIncrements, new double[] {1.2, 2.0}, 1,
+				Engine.PreDefined.LV_T30_LIQUID_FUEL_ENGINE, Engine.PreDefined.LV_909_LIQUID_FUEL_ENGINE);
+		SearchResult result = search.search(20000);
+		List<SearchStats.Improvement> improvements = result.getStats().getImprovements();
+		double[] tankMasses = improvements.get(improvements.size() - 1).getTankMasses();
+		for (double tankMass : tankMasses) {
+			assertEquals(Math.round(tankMass / oddIncrements) * oddIncrements, tankMass, 0);
+		}
+		
+		// Every strategy reaching the same design lands on the very same masses.
+		search.setStrategy(SearchStrategy.LINE_SEARCH);
+		assertSameRocket(result.getRocket(), search.run(20000));
+		search.setStrategy(SearchStrategy.BRANCH_AND_BOUND).setPayloadSearch(PayloadSearch.BISECTION);
+		assertSameRocket(result.getRocket(), search.run(20000));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoResolutionLevels() {
+		new StagedSearch(twoStageDeltaV, massIncrements, new double[] {1.2, 2.0}, 1,
+				Engine.PreDefined.LV_T30_LIQUID_FUEL_ENGINE, Engine.PreDefined.LV_909_LIQUID_FUEL_ENGINE).setMultiResolution(0, 16);
+	}
+	
+	@Test
+	public void testSingleDesign() {
+		StagedSearch search = new StagedSearch(twoStageDeltaV, massIncrements, new double[] {1.2, 2.0}, 1,
+				Engine.PreDefined.LV_T30_LIQUID_FUEL_ENGINE, Engine.PreDefined.LV_909_LIQUID_FUEL_ENGINE);
+		List<Rocket> rockets = search.search(20000).getRockets();
+		assertEquals(1, rockets.size());
+		assertSameRocket(twoStageRocket, rockets.get(0));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMissingTargetTWR() {
+		new StagedSearch(twoStageDeltaV, massIncrements, new double[] {1.2}, 1, fourStageEngines).getClass();
+	}
+
+	private static double getPayloadMass(Rocket rocket) {
+		Stage topStage = rocket.getFinalStage();
+		return topStage.getMass() - topStage.getGroups()[0].getMass();
+	}
+
+	/**
+	 * A search off the full grid must land on the same payload, within 1% of
+	 * the payload fraction.
+	 */
+	private static void assertCloseResult(SearchResult expected, SearchResult actual) {
+		assertNotNull(actual.getRocket());
+		assertEquals(getPayloadMass(expected.getRocket()), getPayloadMass(actual.getRocket()), 1e-7);
+		assertEquals(expected.getPayloadFraction(), actual.getPayloadFraction(), expected.getPayloadFraction() * 0.01);
+		assertTrue(actual.getPayloadFraction() <= expected.getPayloadFraction() + 1e-9);
+	}
+
+	private static void assertSameAsExhaustive(SearchStrategy strategy, double targetDeltaV, double massIncrements,
+			double maxPayloadMass, Thrustable... engines) {
+		IspContext ispContext = new IspContext(0.81);
+		double[] targetTWRs = {1.2, 2.0};
+		Rocket expected = new StagedSearch(ispContext, targetDeltaV, massIncrements, targetTWRs, 1, engines).run(maxPayloadMass);
+		StagedSearch search = new StagedSearch(ispContext, targetDeltaV, massIncrements, targetTWRs, 1, engines);
+		search.setStrategy(strategy);
+		assertSameRocket(expected, search.run(maxPayloadMass));
+	}
+	
+	private static void assertSameRocket(Rocket expected, Rocket actual) {
+		assertEquals(expected.getStages().length, actual.getStages().length);
+		for (int i = 0; i < expected.getStages().length; i++) {
+			assertEquals(expected.getStage(i).getMass(), actual.getStage(i).getMass(), 0);
+			assertEquals(expected.getStage(i).getDryMass(), actual.getStage(i).getDryMass(), 0);
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package com.stevehead.ksp.rocketbuilder.search;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.stevehead.ksp.rocketbuilder.interfaces.IspContext;
+import com.stevehead.ksp.rocketbuilder.interfaces.Thrustable;
+import com.stevehead.ksp.rocketbuilder.rocket.Engine;
+import com.stevehead.ksp.rocketbuilder.rocket.Rocket;
+
+public class UpperStageCandidatesTest {
+
+	private static final IspContext ispContext = new IspContext(0.81);
+	private static final double targetDeltaV = 3800;
+	private static final double massIncrements = 200;
+	private static final double[] targetTWRs = {1.2, 2.0};
+	private static final Thrustable upperEngine = Engine.PreDefined.LV_909_LIQUID_FUEL_ENGINE;
+	private static final Thrustable[] lowerEngines = {
+		Engine.PreDefined.LV_T30_LIQUID_FUEL_ENGINE,
+		Engine.PreDefined.LV_T45_LIQUID_FUEL_ENGINE,
+		Engine.PreDefined.ROCKOMAX_SKIPPER_LIQUID_ENGINE
+	};
+
+	@Test
+	public void testSharedCandidatesMatchSearch() {
+		UpperStageCandidates candidates = new UpperStageCandidates(upperEngine);
+		for (SearchStrategy strategy : new SearchStrategy[] {SearchStrategy.EXHAUSTIVE, SearchStrategy.BRANCH_AND_BOUND}) {
+			for (Thrustable lowerEngine : lowerEngines) {
+				SearchResult expected = createSearch(lowerEngine).setStrategy(strategy).search(20000);
+				SearchResult actual = createSearch(lowerEngine).setStrategy(strategy)
+						.setUpperStageCandidates(candidates).search(20000);
+				
+				assertSameRocket(expected.getRocket(), actual.getRocket());
+				assertEquals(expected.getStats().getCandidates(), actual.getStats().getCandidates());
+				assertEquals(expected.getStats().getDesigns(), actual.getStats().getDesigns());
+				assertEquals(expected.getStats().getRejections(SearchStats.Rejection.BELOW_TARGET_TWR),
+						actual.getStats().getRejections(SearchStats.Rejection.BELOW_TARGET_TWR));
+			}
+		}
+		assertTrue(candidates.size() > 0);
+		candidates.clear();
+		assertEquals(0, candidates.size());
+	}
+
+	@Test
+	public void testCapacity() {
+		UpperStageCandidates candidates = new UpperStageCandidates(upperEngine, 2);
+		createSearch(lowerEngines[0]).setUpperStageCandidates(candidates);
+		UpperStageCandidates.Candidates first = candidates.get(1000);
+		UpperStageCandidates.Candidates second = candidates.get(2000);
+		assertSame(first, candidates.get(1000));
+		candidates.get(3000);
+		assertEquals(2, candidates.size());
+		assertSame(first, candidates.get(1000));
+		
+		// The least recently used payload was dropped, and is walked again.
+		UpperStageCandidates.Candidates walked = candidates.get(2000);
+		assertNotSame(second, walked);
+		assertArrayEquals(second.masses, walked.masses, 0);
+		assertEquals(2, candidates.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testOtherEngine() {
+		createSearch(lowerEngines[0]).setUpperStageCandidates(new UpperStageCandidates(lowerEngines[1]));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testOtherSettings() {
+		UpperStageCandidates candidates = new UpperStageCandidates(upperEngine);
+		createSearch(lowerEngines[0]).setUpperStageCandidates(candidates);
+		new StagedSearch(IspContext.UNSCALED, targetDeltaV, massIncrements, targetTWRs, 1, lowerEngines[0], upperEngine)
+				.setUpperStageCandidates(candidates);
+	}
+
+	private static StagedSearch createSearch(Thrustable lowerEngine) {
+		return new StagedSearch(ispContext, targetDeltaV, massIncrements, targetTWRs, 1, lowerEngine, upperEngine);
+	}
+
+	private static void assertSameRocket(Rocket expected, Rocket actual) {
+		assertEquals(expected == null, actual == null);
+		if (expected == null) return;
+		for (int i = 0; i < expected.getStages().length; i++) {
+			assertEquals(expected.getStage(i).getMass(), actual.getStage(i).getMass(), 0);
+			assertEquals(expected.getStage(i).getDryMass(), actual.getStage(i).getDryMass(), 0);
+		}
+	}
+}